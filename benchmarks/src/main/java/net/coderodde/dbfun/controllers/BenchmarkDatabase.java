@@ -0,0 +1,108 @@
+package net.coderodde.dbfun.controllers;
+
+import java.sql.Date;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * This class sets up the embedded database used by the benchmarks. The 
+ * {@link DataAccessObject} is pointed to an in-memory H2 database running in 
+ * MySQL mode and the table is filled with generated persons.
+ * 
+ * @author Rodion "rodde" Efremov
+ * @version 1.7 (Oct 18, 2026)
+ */
+final class BenchmarkDatabase {
+    
+    /**
+     * The JDBC URL of the embedded database.
+     */
+    static final String JDBC_URL = 
+            "jdbc:h2:mem:dbfun;MODE=MySQL;DB_CLOSE_DELAY=-1";
+    
+    /**
+     * The number of persons inserted per batch while seeding.
+     */
+    private static final int SEED_BATCH_SIZE = 1000;
+    
+    private BenchmarkDatabase() {}
+    
+    /**
+     * Points the data access object to the embedded database and inserts
+     * {@code rows} persons. Must be called before the data access object is
+     * first used.
+     * 
+     * @param rows      the number of persons to insert.
+     * @param cacheSize the size of the person cache; zero disables it.
+     */
+    static void start(int rows, int cacheSize) {
+        System.setProperty("DBFUN_JDBC_URL", JDBC_URL);
+        System.setProperty("DBFUN_JDBC_USERNAME", "sa");
+        System.setProperty("DBFUN_CACHE_MAX_SIZE", Integer.toString(cacheSize));
+        
+        DataAccessObject dao = DataAccessObject.instance();
+        dao.createDatabase();
+        
+        Random random = new Random(13L);
+        List<Person> batch = new ArrayList<>(SEED_BATCH_SIZE);
+        
+        for (int i = 0; i < rows; ++i) {
+            batch.add(newPerson(random, i));
+            
+            if (batch.size() == SEED_BATCH_SIZE || i == rows - 1) {
+                dao.addPersons(batch);
+                batch.clear();
+            }
+        }
+    }
+    
+    /**
+     * Creates a validated person with a generated name and email address.
+     * 
+     * @param random the random number generator.
+     * @param index  the index of the person, used for making the email unique.
+     * @return a new person.
+     */
+    static Person newPerson(Random random, int index) {
+        Person person = new Person();
+        person.setFirstName(randomName(random));
+        person.setLastName(randomName(random));
+        person.setEmail("person" + index + "@example.com");
+        return person;
+    }
+    
+    /**
+     * Generates persons in memory without validating them.
+     * 
+     * @param count the number of persons.
+     * @return the list of persons.
+     */
+    static List<Person> newTrustedPersons(int count) {
+        Random random = new Random(13L);
+        Date created = new Date(System.currentTimeMillis());
+        List<Person> persons = new ArrayList<>(count);
+        
+        for (int i = 0; i < count; ++i) {
+            persons.add(Person.fromTrustedRow(i + 1,
+                                              randomName(random),
+                                              randomName(random),
+                                              "person" + i + "@example.com",
+                                              created));
+        }
+        
+        return persons;
+    }
+    
+    private static String randomName(Random random) {
+        int length = 3 + random.nextInt(8);
+        char[] chars = new char[length];
+        chars[0] = (char)('A' + random.nextInt(26));
+        
+        for (int i = 1; i < length; ++i) {
+            chars[i] = (char)('a' + random.nextInt(26));
+        }
+        
+        return new String(chars);
+    }
+}
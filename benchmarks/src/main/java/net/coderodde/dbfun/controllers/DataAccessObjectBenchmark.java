@@ -0,0 +1,115 @@
+package net.coderodde.dbfun.controllers;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Measures the {@link DataAccessObject} calls end to end against the embedded
+ * database, including borrowing the pooled connections. Reports both the
+ * throughput and the latency distribution (percentiles).
+ * 
+ * @author Rodion "rodde" Efremov
+ * @version 1.7 (Oct 18, 2026)
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class DataAccessObjectBenchmark {
+    
+    /**
+     * The number of persons in the table.
+     */
+    @Param({"10000"})
+    public int rows;
+    
+    /**
+     * The size of the person cache; zero measures the database path.
+     */
+    @Param({"0", "10000"})
+    public int cacheSize;
+    
+    private DataAccessObject dao;
+    
+    /**
+     * Numbers the email addresses of the inserted persons.
+     */
+    private final AtomicInteger emailCounter = new AtomicInteger();
+    
+    @Setup(Level.Trial)
+    public void setUp() {
+        BenchmarkDatabase.start(rows, cacheSize);
+        dao = DataAccessObject.instance();
+        emailCounter.set(rows);
+    }
+    
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        dao.shutdown();
+    }
+    
+    /**
+     * Holds the per-thread random number generator.
+     */
+    @State(Scope.Thread)
+    public static class ThreadState {
+        final Random random = new Random();
+    }
+    
+    @Benchmark
+    public Person getUserById(ThreadState state) {
+        return dao.getUserById(1 + state.random.nextInt(rows));
+    }
+    
+    @Benchmark
+    public List<Person> getUsersAfter(ThreadState state) {
+        return dao.getUsersAfter(state.random.nextInt(rows), 100);
+    }
+    
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public List<Person> getAllUsers() {
+        return dao.getAllUsers();
+    }
+    
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public void streamAllUsers(final Blackhole blackhole) throws IOException {
+        dao.streamAllUsers(new PersonHandler() {
+            @Override
+            public void handle(Person person) {
+                blackhole.consume(person);
+            }
+        });
+    }
+    
+    @Benchmark
+    public Person addPerson(ThreadState state) {
+        Person person = 
+                BenchmarkDatabase.newPerson(state.random, 
+                                            emailCounter.getAndIncrement());
+        dao.addPerson(person);
+        return person;
+    }
+}
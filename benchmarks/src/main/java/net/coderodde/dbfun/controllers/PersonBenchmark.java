@@ -0,0 +1,76 @@
+package net.coderodde.dbfun.controllers;
+
+import java.sql.Date;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Measures the validation of email addresses and the construction of 
+ * {@link Person} objects, both through the validating setters and through 
+ * the trusted factory used for the database rows.
+ * 
+ * @author Rodion "rodde" Efremov
+ * @version 1.7 (Oct 18, 2026)
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class PersonBenchmark {
+    
+    private static final String[] EMAILS = {
+        "rodion.efremov@example.com",
+        "john_doe+spam@mail.server.fi",
+        "not an email",
+        "missing.top.level@domain",
+        "x@y.museum",
+    };
+    
+    private final Date created = new Date(System.currentTimeMillis());
+    
+    @Benchmark
+    public void regexValidation(Blackhole blackhole) {
+        for (String email : EMAILS) {
+            blackhole.consume(
+                    Person.VALID_EMAIL_ADDRESS_REGEX.matcher(email).find());
+        }
+    }
+    
+    @Benchmark
+    public void singlePassValidation(Blackhole blackhole) {
+        for (String email : EMAILS) {
+            blackhole.consume(Person.isValidEmailAddress(email));
+        }
+    }
+    
+    @Benchmark
+    public Person validatedPerson() {
+        Person person = new Person();
+        person.setId(1);
+        person.setFirstName("Rodion");
+        person.setLastName("Efremov");
+        person.setEmail("rodion.efremov@example.com");
+        person.setCreated(created);
+        return person;
+    }
+    
+    @Benchmark
+    public Person trustedPerson() {
+        return Person.fromTrustedRow(1, 
+                                     "Rodion", 
+                                     "Efremov", 
+                                     "rodion.efremov@example.com", 
+                                     created);
+    }
+}
@@ -0,0 +1,149 @@
+package net.coderodde.dbfun.controllers;
+
+import com.google.gson.Gson;
+import com.google.gson.stream.JsonWriter;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares the representations of the full listing: the JSON written through
+ * {@link PersonTypeAdapter} and the CBOR written by {@link PersonCborWriter},
+ * each plain and gzipped at the given level. The bytes on the wire of each
+ * representation are reported as the secondary result {@code wireBytes}.
+ *
+ * @author Rodion "rodde" Efremov
+ * @version 1.7 (Oct 18, 2026)
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@State(Scope.Benchmark)
+public class ResponseEncodingBenchmark {
+
+    @Param({"1000", "100000"})
+    public int rows;
+
+    @Param({"1", "6"})
+    public int gzipLevel;
+
+    private final Gson gson = PersonTypeAdapter.newGson();
+
+    private List<Person> persons;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        persons = BenchmarkDatabase.newTrustedPersons(rows);
+    }
+
+    /**
+     * Reports the bytes on the wire of the last response encoded.
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class WireBytes {
+        public long wireBytes;
+    }
+
+    @Benchmark
+    public long json(WireBytes counters) throws IOException {
+        CountingOutputStream out = new CountingOutputStream();
+        writeJson(out);
+        return counters.wireBytes = out.count;
+    }
+
+    @Benchmark
+    public long jsonGzip(WireBytes counters) throws IOException {
+        CountingOutputStream out = new CountingOutputStream();
+        writeJson(gzip(out));
+        return counters.wireBytes = out.count;
+    }
+
+    @Benchmark
+    public long cbor(WireBytes counters) throws IOException {
+        CountingOutputStream out = new CountingOutputStream();
+        writeCbor(out);
+        return counters.wireBytes = out.count;
+    }
+
+    @Benchmark
+    public long cborGzip(WireBytes counters) throws IOException {
+        CountingOutputStream out = new CountingOutputStream();
+        writeCbor(gzip(out));
+        return counters.wireBytes = out.count;
+    }
+
+    private void writeJson(OutputStream out) throws IOException {
+        OutputStreamWriter writer =
+                new OutputStreamWriter(new BufferedOutputStream(out, 8192),
+                                       StandardCharsets.UTF_8);
+        JsonWriter jsonWriter = new JsonWriter(writer);
+        jsonWriter.beginArray();
+
+        for (Person person : persons) {
+            gson.toJson(person, Person.class, jsonWriter);
+        }
+
+        jsonWriter.endArray();
+        jsonWriter.close();
+    }
+
+    private void writeCbor(OutputStream out) throws IOException {
+        try (OutputStream buffered = new BufferedOutputStream(out, 8192)) {
+            PersonCborWriter writer = new PersonCborWriter(buffered);
+            writer.begin();
+
+            for (Person person : persons) {
+                writer.handle(person);
+            }
+
+            writer.end();
+        }
+    }
+
+    private OutputStream gzip(OutputStream out) throws IOException {
+        return new GZIPOutputStream(out, 8192) {
+            {
+                def.setLevel(gzipLevel);
+            }
+        };
+    }
+
+    /**
+     * Discards the bytes written to it, only counting them.
+     */
+    static final class CountingOutputStream extends OutputStream {
+
+        long count;
+
+        @Override
+        public void write(int b) {
+            count++;
+        }
+
+        @Override
+        public void write(byte[] buffer, int offset, int length) {
+            count += length;
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package net.coderodde.dbfun.controllers;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Measures mapping the rows of a result set to {@link Person} objects, and the
+ * cost of the extra {@code COUNT(*)} round trip on a second connection that 
+ * the listing used to make before scanning the table.
+ * 
+ * @author Rodion "rodde" Efremov
+ * @version 1.7 (Oct 18, 2026)
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ResultSetMappingBenchmark {
+    
+    private static final String SELECT_SQL = "SELECT * FROM funny_persons;";
+    private static final String COUNT_SQL = 
+            "SELECT COUNT(*) FROM funny_persons;";
+    
+    @Param({"1000"})
+    public int rows;
+    
+    private Connection connection;
+    
+    @Setup(Level.Trial)
+    public void setUp() throws SQLException {
+        BenchmarkDatabase.start(rows, 0);
+        connection = DriverManager.getConnection(BenchmarkDatabase.JDBC_URL, 
+                                                 "sa", 
+                                                 "");
+    }
+    
+    @TearDown(Level.Trial)
+    public void tearDown() throws SQLException {
+        connection.close();
+        DataAccessObject.instance().shutdown();
+    }
+    
+    @Benchmark
+    public void trustedMapping(Blackhole blackhole) throws SQLException {
+        try (PreparedStatement statement = 
+                connection.prepareStatement(SELECT_SQL);
+             ResultSet resultSet = statement.executeQuery()) {
+            while (resultSet.next()) {
+                blackhole.consume(DataAccessObject.readPerson(resultSet));
+            }
+        }
+    }
+    
+    @Benchmark
+    public void validatingMapping(Blackhole blackhole) throws SQLException {
+        try (PreparedStatement statement = 
+                connection.prepareStatement(SELECT_SQL);
+             ResultSet resultSet = statement.executeQuery()) {
+            while (resultSet.next()) {
+                Person person = new Person();
+                person.setId(resultSet.getInt("id"));
+                person.setFirstName(resultSet.getString("first_name"));
+                person.setLastName(resultSet.getString("last_name"));
+                person.setEmail(resultSet.getString("email"));
+                person.setCreated(resultSet.getDate("created"));
+                blackhole.consume(person);
+            }
+        }
+    }
+    
+    @Benchmark
+    public void countThenScan(Blackhole blackhole) throws SQLException {
+        try (Connection countConnection = 
+                DriverManager.getConnection(BenchmarkDatabase.JDBC_URL, 
+                                            "sa", 
+                                            "");
+             PreparedStatement statement = 
+                countConnection.prepareStatement(COUNT_SQL);
+             ResultSet resultSet = statement.executeQuery()) {
+            resultSet.next();
+            blackhole.consume(resultSet.getInt(1));
+        }
+        
+        trustedMapping(blackhole);
+    }
+}
@@ -0,0 +1,129 @@
+package net.coderodde.dbfun.controllers;
+
+import com.google.gson.Gson;
+import com.google.gson.stream.JsonWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures serializing the output of {@code getAllUsers()} to JSON, both as a
+ * single string as the listing used to do and streamed through a 
+ * {@link JsonWriter} as it does now, and both with a reflective {@link Gson}
+ * created per request and with the shared one using 
+ * {@link PersonTypeAdapter}. The {@code singlePerson} benchmarks measure the
+ * {@code /show/{id}} case where creating the Gson instance dominates.
+ * 
+ * @author Rodion "rodde" Efremov
+ * @version 1.7 (Oct 18, 2026)
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@State(Scope.Benchmark)
+public class SerializationBenchmark {
+    
+    @Param({"1000", "100000", "1000000"})
+    public int rows;
+    
+    private List<Person> persons;
+    
+    private final Gson sharedGson = PersonTypeAdapter.newGson();
+    
+    @Setup(Level.Trial)
+    public void setUp() {
+        persons = BenchmarkDatabase.newTrustedPersons(rows);
+    }
+    
+    @Benchmark
+    public long gsonToString() throws IOException {
+        CountingWriter writer = new CountingWriter();
+        writer.write(new Gson().toJson(persons));
+        return writer.count;
+    }
+    
+    @Benchmark
+    public long gsonStreaming() throws IOException {
+        CountingWriter writer = new CountingWriter();
+        Gson gson = new Gson();
+        JsonWriter jsonWriter = new JsonWriter(writer);
+        jsonWriter.beginArray();
+        
+        for (Person person : persons) {
+            gson.toJson(person, Person.class, jsonWriter);
+        }
+        
+        jsonWriter.endArray();
+        jsonWriter.flush();
+        return writer.count;
+    }
+    
+    @Benchmark
+    public long adapterStreaming() throws IOException {
+        CountingWriter writer = new CountingWriter();
+        JsonWriter jsonWriter = new JsonWriter(writer);
+        jsonWriter.beginArray();
+        
+        for (Person person : persons) {
+            sharedGson.toJson(person, Person.class, jsonWriter);
+        }
+        
+        jsonWriter.endArray();
+        jsonWriter.flush();
+        return writer.count;
+    }
+    
+    @Benchmark
+    public String singlePersonNewGson() {
+        return new Gson().toJson(persons.get(0));
+    }
+    
+    @Benchmark
+    public String singlePersonSharedAdapter() {
+        return sharedGson.toJson(persons.get(0));
+    }
+    
+    /**
+     * Discards the characters written to it, only counting them.
+     */
+    static final class CountingWriter extends Writer {
+        
+        long count;
+        
+        @Override
+        public void write(char[] buffer, int offset, int length) {
+            count += length;
+        }
+        
+        @Override
+        public void write(String string, int offset, int length) {
+            count += length;
+        }
+        
+        @Override
+        public void write(int c) {
+            count++;
+        }
+        
+        @Override
+        public void flush() {}
+        
+        @Override
+        public void close() {}
+    }
+}
@@ -0,0 +1,139 @@
+package net.coderodde.dbfun.loadtest;
+
+import java.io.File;
+import java.io.IOException;
+import org.apache.catalina.Context;
+import org.apache.catalina.LifecycleException;
+import org.apache.catalina.WebResourceRoot;
+import org.apache.catalina.connector.Connector;
+import org.apache.catalina.startup.Tomcat;
+import org.apache.catalina.webresources.DirResourceSet;
+import org.apache.catalina.webresources.StandardRoot;
+
+/**
+ * This class deploys the web application in an embedded Tomcat, either from a
+ * WAR or exploded from the web resources and the compiled classes, so that
+ * the servlets, filters and listeners are discovered from their annotations
+ * just like in a real container. The libraries of the web application that
+ * are not in the WAR, such as the H2 driver, are loaded from the class path
+ * of the load test.
+ *
+ * @author Rodion "rodde" Efremov
+ * @version 1.7 (Oct 18, 2026)
+ */
+final class EmbeddedServer {
+
+    /**
+     * The context path, as in {@code META-INF/context.xml}.
+     */
+    static final String CONTEXT_PATH = "/dbfun";
+
+    private final Tomcat tomcat;
+    private final Context context;
+    private final String baseUrl;
+
+    private EmbeddedServer(Tomcat tomcat, Context context, String baseUrl) {
+        this.tomcat = tomcat;
+        this.context = context;
+        this.baseUrl = baseUrl;
+    }
+
+    /**
+     * Deploys the web application and starts the server.
+     *
+     * @param war        the WAR, or {@code null} to deploy the exploded
+     *                   application.
+     * @param webappDir  the web resources of the exploded application.
+     * @param classesDir the compiled classes of the exploded application.
+     * @param port       the port to listen on; 0 picks a free one.
+     * @param workDir    the working directory of Tomcat.
+     * @return the started server.
+     * @throws IOException if a directory is missing.
+     * @throws LifecycleException if the server does not start.
+     */
+    static EmbeddedServer start(File war,
+                                File webappDir,
+                                File classesDir,
+                                int port,
+                                File workDir)
+            throws IOException, LifecycleException {
+        Tomcat tomcat = new Tomcat();
+        tomcat.setBaseDir(workDir.getAbsolutePath());
+        tomcat.setPort(port);
+        // The default web.xml maps JSPs, which the embedded core cannot
+        // compile; only the default servlet is needed.
+        tomcat.setAddDefaultWebXmlToWebapp(false);
+        Context context;
+
+        if (war != null) {
+            requireExists(war);
+            context = tomcat.addWebapp(CONTEXT_PATH, war.getAbsolutePath());
+        } else {
+            requireExists(webappDir);
+            requireExists(classesDir);
+            context = tomcat.addWebapp(CONTEXT_PATH,
+                                       webappDir.getAbsolutePath());
+            WebResourceRoot resources = new StandardRoot(context);
+            resources.addPreResources(
+                    new DirResourceSet(resources,
+                                       "/WEB-INF/classes",
+                                       classesDir.getAbsolutePath(),
+                                       "/"));
+            context.setResources(resources);
+        }
+
+        Tomcat.addServlet(context,
+                          "default",
+                          "org.apache.catalina.servlets.DefaultServlet");
+        context.addServletMappingDecoded("/", "default");
+        context.addWelcomeFile("index.html");
+        Tomcat.addDefaultMimeTypeMappings(context);
+
+        Connector connector = tomcat.getConnector();
+        tomcat.start();
+
+        if (!context.getState().isAvailable()) {
+            tomcat.stop();
+            tomcat.destroy();
+            throw new LifecycleException(
+                    "The web application did not start; see the log.");
+        }
+
+        return new EmbeddedServer(tomcat,
+                                  context,
+                                  "http://localhost:" +
+                                  connector.getLocalPort() + CONTEXT_PATH);
+    }
+
+    /**
+     * @return the URL of the web application, without a trailing slash.
+     */
+    String getBaseUrl() {
+        return baseUrl;
+    }
+
+    /**
+     * Redeploys the web application, so that the snapshot, the search index
+     * and the statistics it loads at startup are loaded again.
+     */
+    void reload() {
+        context.reload();
+    }
+
+    /**
+     * Undeploys the web application and stops the server.
+     *
+     * @throws LifecycleException if stopping fails.
+     */
+    void stop() throws LifecycleException {
+        tomcat.stop();
+        tomcat.destroy();
+    }
+
+    private static void requireExists(File file) throws IOException {
+        if (!file.exists()) {
+            throw new IOException(file + " does not exist; build the web " +
+                                  "application first with mvn compile.");
+        }
+    }
+}
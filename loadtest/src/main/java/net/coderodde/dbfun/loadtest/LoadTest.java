@@ -0,0 +1,478 @@
+package net.coderodde.dbfun.loadtest;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonParser;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * This class runs a load test of dbfun. It deploys the web application in an
+ * {@link EmbeddedServer}, seeds the database through {@code /createdb} and
+ * {@code /add_persons}, drives the mixed {@link Workload} at a fixed arrival
+ * rate with an {@link OpenLoopDriver} and reports the throughput and the
+ * latency percentiles of each operation. The results are saved under
+ * {@code -out} as {@code NAME.json}, which a later run compares itself to
+ * with {@code -baseline}, and as {@code NAME-OPERATION.hgrm}.
+ *
+ * <p>The options, all optional:
+ * <pre>
+ * -persons N      persons to seed before the run (100000); 0 seeds none
+ * -rate R         requests per second (500)
+ * -duration S     seconds measured (60)
+ * -warmup S       seconds sent before measuring, not recorded (10)
+ * -mix M          weights of the operations (show=70,list=20,add=10)
+ * -zipf THETA     skew of the IDs read, 0 for uniform (0.99)
+ * -page-size N    persons per listed page (20)
+ * -connections N  concurrent connections (64)
+ * -timeout MS     connect and read timeout of a request (10000)
+ * -seed N         seed of the workload (42)
+ * -url URL        load an already running application instead
+ * -war FILE       deploy a WAR instead of the exploded application
+ * -webapp DIR     web resources of the exploded application (../src/main/webapp)
+ * -classes DIR    classes of the exploded application (../target/classes)
+ * -port N         port of the embedded server, 0 for any (0)
+ * -out DIR        directory of the results (target/loadtest)
+ * -name NAME      name of the results (results-yyyyMMdd-HHmmss)
+ * -label TEXT     free text saved with the results, such as the commit
+ * -baseline FILE  results of an earlier run to compare with
+ * </pre>
+ * The database is the one of {@code DBFUN_JDBC_URL}, given as a system
+ * property or an environment variable, and an in-memory H2 database in MySQL
+ * mode if it is not set. The other {@code DBFUN_*} settings of the
+ * application are passed the same way, for example
+ * {@code -DDBFUN_CACHE_MAX_SIZE=0}.
+ *
+ * @author Rodion "rodde" Efremov
+ * @version 1.7 (Oct 18, 2026)
+ */
+public final class LoadTest {
+
+    /**
+     * The database used unless {@code DBFUN_JDBC_URL} is set.
+     */
+    private static final String DEFAULT_JDBC_URL =
+            "jdbc:h2:mem:dbfun;MODE=MySQL;DB_CLOSE_DELAY=-1";
+
+    /**
+     * The number of persons sent per seeding request.
+     */
+    private static final int SEED_CHUNK_SIZE = 10000;
+
+    /**
+     * The loggers of Tomcat, kept so that their levels stick. The class
+     * loader warns about the threads of the JDBC drivers on undeployment.
+     */
+    private static final Logger TOMCAT_LOGGER =
+            Logger.getLogger("org.apache");
+    private static final Logger CLASS_LOADER_LOGGER =
+            Logger.getLogger("org.apache.catalina.loader");
+
+    private int persons = 100000;
+    private double rate = 500.0;
+    private int durationSeconds = 60;
+    private int warmupSeconds = 10;
+    private String mix = "show=70,list=20,add=10";
+    private double zipf = 0.99;
+    private int pageSize = 20;
+    private int connections = 64;
+    private int timeoutMillis = 10000;
+    private long seed = 42L;
+    private String url;
+    private File war;
+    private File webappDir = new File("../src/main/webapp");
+    private File classesDir = new File("../target/classes");
+    private int port;
+    private File outDir = new File("target/loadtest");
+    private String name;
+    private String label = "";
+    private File baseline;
+
+    private LoadTest() {}
+
+    public static void main(String[] args) throws Exception {
+        LoadTest loadTest = new LoadTest();
+
+        try {
+            loadTest.parse(args);
+        } catch (IllegalArgumentException ex) {
+            System.err.println("Error: " + ex.getMessage());
+            System.err.println("See the documentation of " +
+                               LoadTest.class.getName() + " for the options.");
+            System.exit(2);
+        }
+
+        loadTest.run();
+        // The application leaves non-daemon threads of its libraries.
+        System.exit(0);
+    }
+
+    private void parse(String[] args) {
+        for (int i = 0; i < args.length; i += 2) {
+            if (i + 1 == args.length) {
+                throw new IllegalArgumentException(
+                        "Missing the value of " + args[i]);
+            }
+
+            String value = args[i + 1];
+
+            try {
+                switch (args[i]) {
+                    case "-persons":
+                        persons = Integer.parseInt(value);
+                        break;
+
+                    case "-rate":
+                        rate = Double.parseDouble(value);
+                        break;
+
+                    case "-duration":
+                        durationSeconds = Integer.parseInt(value);
+                        break;
+
+                    case "-warmup":
+                        warmupSeconds = Integer.parseInt(value);
+                        break;
+
+                    case "-mix":
+                        mix = value;
+                        break;
+
+                    case "-zipf":
+                        zipf = Double.parseDouble(value);
+                        break;
+
+                    case "-page-size":
+                        pageSize = Integer.parseInt(value);
+                        break;
+
+                    case "-connections":
+                        connections = Integer.parseInt(value);
+                        break;
+
+                    case "-timeout":
+                        timeoutMillis = Integer.parseInt(value);
+                        break;
+
+                    case "-seed":
+                        seed = Long.parseLong(value);
+                        break;
+
+                    case "-url":
+                        url = value.endsWith("/") ?
+                              value.substring(0, value.length() - 1) :
+                              value;
+                        break;
+
+                    case "-war":
+                        war = new File(value);
+                        break;
+
+                    case "-webapp":
+                        webappDir = new File(value);
+                        break;
+
+                    case "-classes":
+                        classesDir = new File(value);
+                        break;
+
+                    case "-port":
+                        port = Integer.parseInt(value);
+                        break;
+
+                    case "-out":
+                        outDir = new File(value);
+                        break;
+
+                    case "-name":
+                        name = value;
+                        break;
+
+                    case "-label":
+                        label = value;
+                        break;
+
+                    case "-baseline":
+                        baseline = new File(value);
+                        break;
+
+                    default:
+                        throw new IllegalArgumentException(
+                                "Unknown option " + args[i]);
+                }
+            } catch (NumberFormatException ex) {
+                throw new IllegalArgumentException(
+                        "Bad value of " + args[i] + ": " + value);
+            }
+        }
+
+        if (persons < 0 || rate <= 0.0 || durationSeconds < 1 ||
+                warmupSeconds < 0 || pageSize < 1 || connections < 1 ||
+                timeoutMillis < 1) {
+            throw new IllegalArgumentException(
+                    "The numbers must be positive.");
+        }
+
+        if (zipf < 0.0 || zipf >= 1.0) {
+            throw new IllegalArgumentException(
+                    "The Zipfian skew must be in [0, 1).");
+        }
+
+        Workload.parseMix(mix);
+
+        if (name == null) {
+            name = "results-" + new SimpleDateFormat("yyyyMMdd-HHmmss",
+                                                     Locale.ROOT)
+                                .format(new Date());
+        }
+    }
+
+    private void run() throws Exception {
+        TOMCAT_LOGGER.setLevel(Level.WARNING);
+        CLASS_LOADER_LOGGER.setLevel(Level.SEVERE);
+        // Keep a connection per sending thread.
+        System.setProperty("http.maxConnections",
+                           Integer.toString(connections));
+
+        if (System.getProperty("DBFUN_JDBC_URL") == null &&
+                System.getenv("DBFUN_JDBC_URL") == null) {
+            System.setProperty("DBFUN_JDBC_URL", DEFAULT_JDBC_URL);
+            System.setProperty("DBFUN_JDBC_USERNAME", "sa");
+        }
+
+        EmbeddedServer server = null;
+        String baseUrl = url;
+
+        if (baseUrl == null) {
+            server = EmbeddedServer.start(war,
+                                          webappDir,
+                                          classesDir,
+                                          port,
+                                          new File("target/tomcat"));
+            baseUrl = server.getBaseUrl();
+            System.out.println("Deployed " +
+                               (war != null ? war : classesDir) +
+                               " at " + baseUrl);
+        }
+
+        try {
+            long seedNanos = seed(baseUrl);
+
+            if (server != null && persons > 0) {
+                // Start over like a deployment against the seeded database.
+                server.reload();
+            }
+
+            int maxId = getMaxId(baseUrl);
+
+            if (maxId < 1) {
+                throw new IllegalStateException(
+                        "There are no persons; seed some with -persons N.");
+            }
+
+            String runId = Long.toString(System.currentTimeMillis(), 36);
+            Workload workload = new Workload(Workload.parseMix(mix),
+                                             new ZipfianGenerator(maxId,
+                                                                  zipf),
+                                             pageSize,
+                                             runId);
+            LoadTestResults results = new LoadTestResults();
+            System.out.printf(Locale.ROOT,
+                              "Sending %.1f requests per second for " +
+                              "%d + %d s over %d connections, IDs up to %d%n",
+                              rate,
+                              warmupSeconds,
+                              durationSeconds,
+                              connections,
+                              maxId);
+            new OpenLoopDriver(baseUrl,
+                               workload,
+                               results,
+                               connections,
+                               timeoutMillis,
+                               seed)
+                    .run(rate,
+                         TimeUnit.SECONDS.toNanos(warmupSeconds),
+                         TimeUnit.SECONDS.toNanos(durationSeconds),
+                         System.out);
+
+            results.print(System.out);
+            Map<String, Object> config = getConfig(maxId, seedNanos);
+            File json = results.write(outDir, name, config);
+            System.out.println("Saved the results to " + json);
+
+            if (baseline != null) {
+                LoadTestResults.compare(baseline,
+                                        results.toMap(config),
+                                        System.out);
+            }
+        } finally {
+            if (server != null) {
+                server.stop();
+            }
+        }
+    }
+
+    private Map<String, Object> getConfig(int maxId, long seedNanos) {
+        Map<String, Object> config = new LinkedHashMap<>();
+        config.put("name", name);
+        config.put("label", label);
+        config.put("target", url != null ?
+                             url :
+                             war != null ? war.getPath() : "exploded");
+        config.put("database", url != null ?
+                               "" :
+                               System.getProperty("DBFUN_JDBC_URL",
+                                                  System.getenv(
+                                                          "DBFUN_JDBC_URL")));
+        config.put("persons", persons);
+        config.put("maxId", maxId);
+        config.put("seedSeconds", seedNanos / 1e9);
+        config.put("rate", rate);
+        config.put("durationSeconds", durationSeconds);
+        config.put("warmupSeconds", warmupSeconds);
+        config.put("mix", mix);
+        config.put("zipf", zipf);
+        config.put("pageSize", pageSize);
+        config.put("connections", connections);
+        config.put("seed", seed);
+        config.put("java", System.getProperty("java.version"));
+        config.put("processors", Runtime.getRuntime().availableProcessors());
+        return config;
+    }
+
+    /**
+     * Creates the table and inserts the persons, {@link #SEED_CHUNK_SIZE} per
+     * request. The persons are upserted, so seeding a database twice does not
+     * add any rows.
+     *
+     * @param baseUrl the URL of the web application.
+     * @return the time spent in nanoseconds.
+     * @throws IOException if a request fails.
+     */
+    private long seed(String baseUrl) throws IOException {
+        long start = System.nanoTime();
+
+        if (persons == 0) {
+            return 0L;
+        }
+
+        send(baseUrl + "/createdb", "POST", null, null);
+        Random random = new Random(seed);
+        StringBuilder body = new StringBuilder();
+
+        for (int i = 0; i < persons; ++i) {
+            body.append("{\"first_name\":\"")
+                .append(Workload.randomName(random))
+                .append("\",\"last_name\":\"")
+                .append(Workload.randomName(random))
+                .append("\",\"email\":\"seed")
+                .append(i)
+                .append("@example.com\"}\n");
+
+            if ((i + 1) % SEED_CHUNK_SIZE == 0 || i == persons - 1) {
+                send(baseUrl + "/add_persons?upsert=true",
+                     "POST",
+                     "application/x-ndjson",
+                     body.toString().getBytes(StandardCharsets.UTF_8));
+                body.setLength(0);
+            }
+        }
+
+        long nanos = System.nanoTime() - start;
+        System.out.printf(Locale.ROOT,
+                          "Seeded %d persons in %.1f s%n",
+                          persons,
+                          nanos / 1e9);
+        return nanos;
+    }
+
+    /**
+     * Returns the largest ID in the database, read from the newest page.
+     *
+     * @param baseUrl the URL of the web application.
+     * @return the largest ID, or 0 if there are no persons.
+     * @throws IOException if the request fails.
+     */
+    private static int getMaxId(String baseUrl) throws IOException {
+        String json = send(baseUrl + "/show?limit=1&before=", "GET", null, null);
+        JsonArray page = new JsonParser().parse(json)
+                                         .getAsJsonObject()
+                                         .getAsJsonArray("persons");
+        return page.size() == 0 ?
+               0 :
+               page.get(0).getAsJsonObject().get("id").getAsInt();
+    }
+
+    /**
+     * Sends a request and fails unless it succeeds.
+     *
+     * @param url         the URL.
+     * @param method      the method.
+     * @param contentType the type of the body, or {@code null}.
+     * @param body        the body, or {@code null}.
+     * @return the response body.
+     * @throws IOException if the request fails.
+     */
+    private static String send(String url,
+                               String method,
+                               String contentType,
+                               byte[] body) throws IOException {
+        HttpURLConnection connection =
+                (HttpURLConnection) new URL(url).openConnection();
+        connection.setRequestMethod(method);
+
+        if (body != null) {
+            connection.setDoOutput(true);
+            connection.setRequestProperty("Content-Type", contentType);
+            connection.setFixedLengthStreamingMode(body.length);
+
+            try (OutputStream out = connection.getOutputStream()) {
+                out.write(body);
+            }
+        }
+
+        int status = connection.getResponseCode();
+        InputStream in = status >= 400 ?
+                         connection.getErrorStream() :
+                         connection.getInputStream();
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+
+        if (in != null) {
+            try {
+                byte[] buffer = new byte[8192];
+                int read;
+
+                while ((read = in.read(buffer)) != -1) {
+                    bytes.write(buffer, 0, read);
+                }
+            } finally {
+                in.close();
+            }
+        }
+
+        String response = new String(bytes.toByteArray(),
+                                      StandardCharsets.UTF_8);
+
+        if (status >= 400 || response.startsWith("Error:")) {
+            throw new IOException(method + " " + url + " failed with " +
+                                  status + ": " + response.trim());
+        }
+
+        return response;
+    }
+}
@@ -0,0 +1,460 @@
+package net.coderodde.dbfun.loadtest;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.reflect.TypeToken;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintStream;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import net.coderodde.dbfun.loadtest.Workload.Operation;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+/**
+ * This class collects the latencies of the measured requests per operation
+ * and writes them out.
+ *
+ * <p>The latency of a request is measured from the time it was scheduled to
+ * be sent, not from the time it was actually sent. A request that waits for
+ * a free connection because the server has stalled is thus charged with the
+ * wait, which corrects the coordinated omission of closed-loop load
+ * generators. The time from sending the request to reading the whole
+ * response is kept separately as the service time.
+ *
+ * @author Rodion "rodde" Efremov
+ * @version 1.7 (Oct 18, 2026)
+ */
+final class LoadTestResults {
+
+    /**
+     * The percentiles reported.
+     */
+    private static final double[] PERCENTILES = { 50.0, 90.0, 99.0, 99.9 };
+
+    /**
+     * The number of significant decimal digits kept by the histograms.
+     */
+    private static final int SIGNIFICANT_DIGITS = 3;
+
+    private static final double NANOS_PER_MILLI = 1e6;
+    private static final double NANOS_PER_SECOND = 1e9;
+
+    private static final Gson GSON =
+            new GsonBuilder().setPrettyPrinting()
+                             .disableHtmlEscaping()
+                             .create();
+
+    private final Map<Operation, OperationResults> operations =
+            new EnumMap<>(Operation.class);
+    private final Recorder warmupLatency = new Recorder(SIGNIFICANT_DIGITS);
+    private final AtomicLong maxBacklog = new AtomicLong();
+    private volatile long measureStartNanos = Long.MAX_VALUE;
+    private long measuredNanos;
+
+    LoadTestResults() {
+        for (Operation operation : Operation.values()) {
+            operations.put(operation, new OperationResults());
+        }
+    }
+
+    /**
+     * Starts measuring: the requests scheduled from now on are recorded.
+     *
+     * @param nanos the start of the measurement, from {@link System#nanoTime}.
+     */
+    void startMeasuring(long nanos) {
+        measureStartNanos = nanos;
+    }
+
+    /**
+     * Sets the length of the measurement.
+     *
+     * @param nanos the time between the first and the last scheduled request.
+     */
+    void setMeasuredNanos(long nanos) {
+        measuredNanos = nanos;
+    }
+
+    /**
+     * Records a completed or failed request.
+     *
+     * @param operation      the operation.
+     * @param scheduledNanos the time the request was scheduled to be sent.
+     * @param sentNanos      the time the request was sent.
+     * @param doneNanos      the time the response was read or the request
+     *                       failed.
+     * @param status         the HTTP status, or 0 if the request failed.
+     * @param ok             whether the request succeeded.
+     */
+    void record(Operation operation,
+                long scheduledNanos,
+                long sentNanos,
+                long doneNanos,
+                int status,
+                boolean ok) {
+        if (scheduledNanos < measureStartNanos) {
+            warmupLatency.recordValue(Math.max(0L,
+                                               doneNanos - scheduledNanos));
+            return;
+        }
+
+        OperationResults results = operations.get(operation);
+        results.latency.recordValue(Math.max(0L, doneNanos - scheduledNanos));
+        results.serviceTime.recordValue(Math.max(0L, doneNanos - sentNanos));
+        results.countStatus(status);
+
+        if (!ok) {
+            results.errors.incrementAndGet();
+        }
+    }
+
+    /**
+     * Records the number of requests waiting for a connection.
+     *
+     * @param backlog the number of waiting requests.
+     */
+    void recordBacklog(long backlog) {
+        long currentMax = maxBacklog.get();
+
+        while (backlog > currentMax &&
+               !maxBacklog.compareAndSet(currentMax, backlog)) {
+            currentMax = maxBacklog.get();
+        }
+    }
+
+    /**
+     * Moves the latencies recorded since the last call to the totals.
+     *
+     * @return the latencies recorded since the last call, for all the
+     *         operations, including the warm-up ones left out of the totals.
+     */
+    synchronized Histogram collectInterval() {
+        Histogram interval = warmupLatency.getIntervalHistogram();
+
+        for (OperationResults results : operations.values()) {
+            interval.add(results.collect());
+        }
+
+        return interval;
+    }
+
+    /**
+     * Prints a table of the results.
+     *
+     * @param out the stream to print to.
+     */
+    synchronized void print(PrintStream out) {
+        collectInterval();
+        out.printf("%-8s %9s %7s %9s %9s %9s %9s %9s %9s %11s%n",
+                   "", "requests", "errors", "req/s",
+                   "p50 ms", "p90 ms", "p99 ms", "p99.9 ms", "max ms",
+                   "svc p99 ms");
+
+        for (Map.Entry<Operation, OperationResults> entry :
+                operations.entrySet()) {
+            if (entry.getValue().latencyTotal.getTotalCount() > 0) {
+                print(out,
+                      entry.getKey().getName(),
+                      entry.getValue().latencyTotal,
+                      entry.getValue().serviceTimeTotal,
+                      entry.getValue().errors.get());
+            }
+        }
+
+        print(out, "total", getTotal(true), getTotal(false), getErrors());
+        out.println("Largest backlog: " + maxBacklog.get() + " requests");
+    }
+
+    /**
+     * Converts the results to a tree of maps ready to be written as JSON.
+     *
+     * @param config the configuration of the run.
+     * @return the results.
+     */
+    synchronized Map<String, Object> toMap(Map<String, Object> config) {
+        collectInterval();
+        Map<String, Object> map = new LinkedHashMap<>();
+        Map<String, Object> operationMaps = new LinkedHashMap<>();
+        map.put("config", config);
+
+        for (Map.Entry<Operation, OperationResults> entry :
+                operations.entrySet()) {
+            OperationResults results = entry.getValue();
+
+            if (results.latencyTotal.getTotalCount() > 0) {
+                Map<String, Object> operationMap =
+                        toMap(results.latencyTotal,
+                              results.serviceTimeTotal,
+                              results.errors.get());
+                operationMap.put("statuses", new TreeMap<>(results.statuses));
+                operationMaps.put(entry.getKey().getName(), operationMap);
+            }
+        }
+
+        map.put("operations", operationMaps);
+        map.put("total", toMap(getTotal(true), getTotal(false), getErrors()));
+        map.put("maxBacklog", maxBacklog.get());
+        return map;
+    }
+
+    /**
+     * Writes the results as JSON and the latencies of each operation as an
+     * HdrHistogram percentile distribution in milliseconds, which the
+     * HdrHistogram plotter reads.
+     *
+     * @param dir    the directory to write to.
+     * @param name   the prefix of the file names.
+     * @param config the configuration of the run.
+     * @return the JSON file.
+     * @throws IOException if writing fails.
+     */
+    synchronized File write(File dir, String name, Map<String, Object> config)
+            throws IOException {
+        if (!dir.isDirectory() && !dir.mkdirs()) {
+            throw new IOException("Cannot create " + dir);
+        }
+
+        File json = new File(dir, name + ".json");
+
+        try (Writer writer = new OutputStreamWriter(
+                new FileOutputStream(json), StandardCharsets.UTF_8)) {
+            GSON.toJson(toMap(config), writer);
+        }
+
+        for (Map.Entry<Operation, OperationResults> entry :
+                operations.entrySet()) {
+            Histogram latency = entry.getValue().latencyTotal;
+
+            if (latency.getTotalCount() > 0) {
+                writePercentiles(new File(dir,
+                                          name + "-" +
+                                          entry.getKey().getName() +
+                                          ".hgrm"),
+                                 latency);
+            }
+        }
+
+        writePercentiles(new File(dir, name + "-total.hgrm"), getTotal(true));
+        return json;
+    }
+
+    /**
+     * Compares the results with those of an earlier run, printing the change
+     * of the throughput and the latency percentiles of each operation.
+     *
+     * @param baseline the JSON file written by the earlier run.
+     * @param current  the results of this run, as returned by
+     *                 {@link #toMap}.
+     * @param out      the stream to print to.
+     * @throws IOException if reading the baseline fails.
+     */
+    @SuppressWarnings("unchecked")
+    static void compare(File baseline,
+                        Map<String, Object> current,
+                        PrintStream out) throws IOException {
+        Map<String, Object> old;
+
+        try (Reader reader = new InputStreamReader(
+                new FileInputStream(baseline), StandardCharsets.UTF_8)) {
+            old = GSON.fromJson(reader,
+                                new TypeToken<Map<String, Object>>() {}
+                                        .getType());
+        }
+
+        Map<String, Object> oldOperations =
+                (Map<String, Object>) old.get("operations");
+        Map<String, Object> newOperations =
+                (Map<String, Object>) current.get("operations");
+        oldOperations.put("total", old.get("total"));
+        newOperations = new LinkedHashMap<>(newOperations);
+        newOperations.put("total", current.get("total"));
+
+        out.println("Compared with " + baseline + ":");
+        out.printf("%-8s %-10s %12s %12s %9s%n",
+                   "", "", "baseline", "this run", "change");
+
+        for (Map.Entry<String, Object> entry : newOperations.entrySet()) {
+            Map<String, Object> oldOperation =
+                    (Map<String, Object>) oldOperations.get(entry.getKey());
+
+            if (oldOperation == null) {
+                continue;
+            }
+
+            Map<String, Object> newOperation =
+                    (Map<String, Object>) entry.getValue();
+            printChange(out, entry.getKey(), "req/s",
+                        oldOperation.get("throughput"),
+                        newOperation.get("throughput"));
+            Map<String, Object> oldLatency =
+                    (Map<String, Object>) oldOperation.get("latencyMillis");
+            Map<String, Object> newLatency =
+                    (Map<String, Object>) newOperation.get("latencyMillis");
+
+            for (String key : newLatency.keySet()) {
+                printChange(out, "", key + " ms",
+                            oldLatency.get(key), newLatency.get(key));
+            }
+        }
+    }
+
+    private static void printChange(PrintStream out,
+                                    String operation,
+                                    String name,
+                                    Object oldValue,
+                                    Object newValue) {
+        if (!(oldValue instanceof Number) || !(newValue instanceof Number)) {
+            return;
+        }
+
+        double before = ((Number) oldValue).doubleValue();
+        double after = ((Number) newValue).doubleValue();
+        out.printf("%-8s %-10s %12.3f %12.3f %9s%n",
+                   operation, name, before, after,
+                   before == 0.0 ?
+                           "" :
+                           String.format("%+.1f%%",
+                                         100.0 * (after - before) / before));
+    }
+
+    private Histogram getTotal(boolean latency) {
+        Histogram total = new Histogram(SIGNIFICANT_DIGITS);
+
+        for (OperationResults results : operations.values()) {
+            total.add(latency ?
+                      results.latencyTotal :
+                      results.serviceTimeTotal);
+        }
+
+        return total;
+    }
+
+    private long getErrors() {
+        long errors = 0L;
+
+        for (OperationResults results : operations.values()) {
+            errors += results.errors.get();
+        }
+
+        return errors;
+    }
+
+    private double getThroughput(long count) {
+        return measuredNanos == 0L ?
+               0.0 :
+               count * NANOS_PER_SECOND / measuredNanos;
+    }
+
+    private void print(PrintStream out,
+                       String name,
+                       Histogram latency,
+                       Histogram serviceTime,
+                       long errors) {
+        out.printf("%-8s %9d %7d %9.1f %9.3f %9.3f %9.3f %9.3f %9.3f %11.3f%n",
+                   name,
+                   latency.getTotalCount(),
+                   errors,
+                   getThroughput(latency.getTotalCount()),
+                   millis(latency.getValueAtPercentile(PERCENTILES[0])),
+                   millis(latency.getValueAtPercentile(PERCENTILES[1])),
+                   millis(latency.getValueAtPercentile(PERCENTILES[2])),
+                   millis(latency.getValueAtPercentile(PERCENTILES[3])),
+                   millis(latency.getMaxValue()),
+                   millis(serviceTime.getValueAtPercentile(99.0)));
+    }
+
+    private Map<String, Object> toMap(Histogram latency,
+                                      Histogram serviceTime,
+                                      long errors) {
+        Map<String, Object> map = new LinkedHashMap<>();
+        map.put("requests", latency.getTotalCount());
+        map.put("errors", errors);
+        map.put("throughput", getThroughput(latency.getTotalCount()));
+        map.put("latencyMillis", toPercentiles(latency));
+        map.put("serviceTimeMillis", toPercentiles(serviceTime));
+        return map;
+    }
+
+    private static Map<String, Object> toPercentiles(Histogram histogram) {
+        Map<String, Object> map = new LinkedHashMap<>();
+        map.put("mean", histogram.getMean() / NANOS_PER_MILLI);
+
+        for (double percentile : PERCENTILES) {
+            map.put("p" + (percentile == Math.rint(percentile) ?
+                           String.valueOf((long) percentile) :
+                           String.valueOf(percentile)),
+                    millis(histogram.getValueAtPercentile(percentile)));
+        }
+
+        map.put("max", millis(histogram.getMaxValue()));
+        return map;
+    }
+
+    private static void writePercentiles(File file, Histogram histogram)
+            throws IOException {
+        try (PrintStream out = new PrintStream(new FileOutputStream(file),
+                                               false,
+                                               "UTF-8")) {
+            histogram.outputPercentileDistribution(out, NANOS_PER_MILLI);
+        }
+    }
+
+    private static double millis(long nanos) {
+        return nanos / NANOS_PER_MILLI;
+    }
+
+    /**
+     * The results of one operation.
+     */
+    private static final class OperationResults {
+
+        final Recorder latency = new Recorder(SIGNIFICANT_DIGITS);
+        final Recorder serviceTime = new Recorder(SIGNIFICANT_DIGITS);
+        final Histogram latencyTotal = new Histogram(SIGNIFICANT_DIGITS);
+        final Histogram serviceTimeTotal = new Histogram(SIGNIFICANT_DIGITS);
+        final AtomicLong errors = new AtomicLong();
+        final ConcurrentMap<Integer, AtomicLong> statuses =
+                new ConcurrentHashMap<>();
+
+        void countStatus(int status) {
+            AtomicLong count = statuses.get(status);
+
+            if (count == null) {
+                AtomicLong newCount = new AtomicLong();
+                count = statuses.putIfAbsent(status, newCount);
+
+                if (count == null) {
+                    count = newCount;
+                }
+            }
+
+            count.incrementAndGet();
+        }
+
+        /**
+         * Moves the recorded latencies to the totals.
+         *
+         * @return the latencies recorded since the last call.
+         */
+        Histogram collect() {
+            Histogram interval = latency.getIntervalHistogram();
+            latencyTotal.add(interval);
+            serviceTimeTotal.add(serviceTime.getIntervalHistogram());
+            return interval;
+        }
+    }
+}
@@ -0,0 +1,284 @@
+package net.coderodde.dbfun.loadtest;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+import org.HdrHistogram.Histogram;
+
+/**
+ * This class sends the requests of a {@link Workload} at a fixed arrival
+ * rate. The requests are scheduled at evenly spaced times, independently of
+ * how fast the server answers, and handed to a fixed pool of connections; if
+ * all the connections are busy, the requests wait in a queue and the wait
+ * counts towards their latency. This is an open-loop generator: unlike a
+ * fixed number of threads each waiting for its previous response, it does not
+ * slow down when the server stalls, so the stall shows in the percentiles.
+ *
+ * @author Rodion "rodde" Efremov
+ * @version 1.7 (Oct 18, 2026)
+ */
+final class OpenLoopDriver {
+
+    /**
+     * The time between two progress lines.
+     */
+    private static final long PROGRESS_NANOS = TimeUnit.SECONDS.toNanos(5L);
+
+    /**
+     * The start of a response body reporting an error with a success status.
+     */
+    private static final byte[] ERROR_PREFIX = { 'E', 'r', 'r', 'o', 'r', ':' };
+
+    private final String baseUrl;
+    private final Workload workload;
+    private final LoadTestResults results;
+    private final int connections;
+    private final int timeoutMillis;
+    private final Random random;
+
+    /**
+     * Constructs the driver.
+     *
+     * @param baseUrl       the URL of the web application.
+     * @param workload      the workload.
+     * @param results       the results to record into.
+     * @param connections   the number of concurrent connections.
+     * @param timeoutMillis the connect and read timeout of a request.
+     * @param seed          the seed of the workload.
+     */
+    OpenLoopDriver(String baseUrl,
+                   Workload workload,
+                   LoadTestResults results,
+                   int connections,
+                   int timeoutMillis,
+                   long seed) {
+        this.baseUrl = baseUrl;
+        this.workload = workload;
+        this.results = results;
+        this.connections = connections;
+        this.timeoutMillis = timeoutMillis;
+        this.random = new Random(seed);
+    }
+
+    /**
+     * Sends the requests, first for the warm-up, which is not recorded, and
+     * then for the measurement, and waits for the responses.
+     *
+     * @param rate           the number of requests per second.
+     * @param warmupNanos    the length of the warm-up.
+     * @param durationNanos  the length of the measurement.
+     * @param progress       the stream to print the progress to.
+     * @throws InterruptedException if interrupted.
+     */
+    void run(double rate,
+             long warmupNanos,
+             long durationNanos,
+             PrintStream progress) throws InterruptedException {
+        final BlockingQueue<Runnable> queue = new LinkedBlockingQueue<>();
+        ThreadPoolExecutor executor =
+                new ThreadPoolExecutor(connections,
+                                       connections,
+                                       0L,
+                                       TimeUnit.MILLISECONDS,
+                                       queue,
+                                       new ThreadFactory() {
+            private final AtomicInteger count = new AtomicInteger();
+
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable,
+                                           "dbfun-loadtest-" +
+                                           count.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        executor.prestartAllCoreThreads();
+
+        double intervalNanos = 1e9 / rate;
+        long start = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(10L);
+        long measureStart = start + warmupNanos;
+        long end = measureStart + durationNanos;
+        long nextProgress = start + PROGRESS_NANOS;
+        results.startMeasuring(measureStart);
+
+        for (long i = 0; ; ++i) {
+            long scheduled = start + (long) (i * intervalNanos);
+
+            if (scheduled >= end) {
+                break;
+            }
+
+            waitUntil(scheduled);
+            executor.execute(new Call(workload.next(random), scheduled));
+            results.recordBacklog(queue.size());
+
+            if (scheduled >= nextProgress) {
+                printProgress(progress,
+                              scheduled - start,
+                              scheduled < measureStart,
+                              queue.size());
+                nextProgress += PROGRESS_NANOS;
+            }
+        }
+
+        results.setMeasuredNanos(durationNanos);
+        executor.shutdown();
+
+        if (!executor.awaitTermination(2L * timeoutMillis + 1000L,
+                                       TimeUnit.MILLISECONDS)) {
+            progress.println("Dropping " + queue.size() +
+                             " requests still waiting for a connection.");
+            long now = System.nanoTime();
+
+            // The calls never sent are the slowest of all; record them as
+            // failed instead of leaving them out of the percentiles.
+            for (Runnable runnable : executor.shutdownNow()) {
+                ((Call) runnable).recordDropped(now);
+            }
+        }
+    }
+
+    private void printProgress(PrintStream progress,
+                               long elapsedNanos,
+                               boolean warmingUp,
+                               int backlog) {
+        Histogram interval = results.collectInterval();
+        String phase = warmingUp ? "warm-up" : "measure";
+        progress.printf(
+                "%6.1f s %s: %d requests, p50 %.3f ms, p99 %.3f ms, " +
+                "max %.3f ms, backlog %d%n",
+                elapsedNanos / 1e9,
+                phase,
+                interval.getTotalCount(),
+                interval.getValueAtPercentile(50.0) / 1e6,
+                interval.getValueAtPercentile(99.0) / 1e6,
+                interval.getMaxValue() / 1e6,
+                backlog);
+    }
+
+    private static void waitUntil(long nanos) {
+        long remaining;
+
+        while ((remaining = nanos - System.nanoTime()) > 0L) {
+            LockSupport.parkNanos(remaining);
+        }
+    }
+
+    /**
+     * A request bound to its scheduled time.
+     */
+    private final class Call implements Runnable {
+
+        private final Workload.Request request;
+        private final long scheduled;
+
+        Call(Workload.Request request, long scheduled) {
+            this.request = request;
+            this.scheduled = scheduled;
+        }
+
+        @Override
+        public void run() {
+            long sent = System.nanoTime();
+            int status = 0;
+            boolean ok = false;
+            HttpURLConnection connection = null;
+
+            try {
+                connection = (HttpURLConnection)
+                        new URL(baseUrl + request.path).openConnection();
+                connection.setConnectTimeout(timeoutMillis);
+                connection.setReadTimeout(timeoutMillis);
+                connection.setUseCaches(false);
+
+                if (request.body != null) {
+                    connection.setRequestMethod("POST");
+                    connection.setDoOutput(true);
+                    connection.setRequestProperty(
+                            "Content-Type",
+                            "application/x-www-form-urlencoded");
+                    connection.setFixedLengthStreamingMode(
+                            request.body.length);
+
+                    try (OutputStream out = connection.getOutputStream()) {
+                        out.write(request.body);
+                    }
+                }
+
+                status = connection.getResponseCode();
+                boolean bodyOk = readBody(status >= 400 ?
+                                          connection.getErrorStream() :
+                                          connection.getInputStream());
+                // A missing person is a valid answer to a read.
+                ok = bodyOk &&
+                     (status < 400 ||
+                      status == HttpURLConnection.HTTP_NOT_FOUND);
+            } catch (IOException ex) {
+                if (connection != null) {
+                    connection.disconnect();
+                }
+            } finally {
+                results.record(request.operation,
+                               scheduled,
+                               sent,
+                               System.nanoTime(),
+                               status,
+                               ok);
+            }
+        }
+
+        /**
+         * Records this call as failed without sending it.
+         *
+         * @param now the time the call was given up.
+         */
+        void recordDropped(long now) {
+            results.record(request.operation, scheduled, now, now, 0, false);
+        }
+
+        /**
+         * Reads the whole body, so that the connection can be reused.
+         *
+         * @param in the body, or {@code null} if there is none.
+         * @return {@code false} if the body reports an error.
+         * @throws IOException if reading fails.
+         */
+        private boolean readBody(InputStream in) throws IOException {
+            if (in == null) {
+                return true;
+            }
+
+            byte[] buffer = new byte[8192];
+            byte[] prefix = new byte[ERROR_PREFIX.length];
+            int prefixLength = 0;
+            int read;
+
+            try {
+                while ((read = in.read(buffer)) != -1) {
+                    int copy = Math.min(read,
+                                        ERROR_PREFIX.length - prefixLength);
+                    System.arraycopy(buffer, 0, prefix, prefixLength, copy);
+                    prefixLength += copy;
+                }
+            } finally {
+                in.close();
+            }
+
+            return prefixLength < ERROR_PREFIX.length ||
+                   !Arrays.equals(prefix, ERROR_PREFIX);
+        }
+    }
+}
@@ -0,0 +1,212 @@
+package net.coderodde.dbfun.loadtest;
+
+import java.io.UnsupportedEncodingException;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * This class generates the requests of a mixed workload. Each request is one
+ * of the {@link Operation}s, drawn with the weights of the mix:
+ * <ul>
+ *   <li>{@code show} reads one person with {@code GET /show/ID},</li>
+ *   <li>{@code list} reads a page with {@code GET /show?limit=N&after=ID},</li>
+ *   <li>{@code add} inserts a new person with {@code POST /add_person}.</li>
+ * </ul>
+ * The IDs follow the Zipfian distribution of a {@link ZipfianGenerator} over
+ * the persons present when the run started. The requests depend only on the
+ * random number generator, so the same seed gives the same sequence.
+ *
+ * @author Rodion "rodde" Efremov
+ * @version 1.7 (Oct 18, 2026)
+ */
+final class Workload {
+
+    /**
+     * The kinds of requests.
+     */
+    enum Operation {
+        SHOW,
+        LIST,
+        ADD;
+
+        /**
+         * @return the name used in the options and the results.
+         */
+        String getName() {
+            return name().toLowerCase(Locale.ROOT);
+        }
+
+        static Operation parse(String name) {
+            try {
+                return valueOf(name.trim().toUpperCase(Locale.ROOT));
+            } catch (IllegalArgumentException ex) {
+                throw new IllegalArgumentException(
+                        "Unknown operation: " + name +
+                        "; use show, list or add.");
+            }
+        }
+    }
+
+    /**
+     * A request to send.
+     */
+    static final class Request {
+
+        final Operation operation;
+        final String path;
+
+        /**
+         * The form-encoded body of a {@code POST}, or {@code null} for a
+         * {@code GET}.
+         */
+        final byte[] body;
+
+        Request(Operation operation, String path, byte[] body) {
+            this.operation = operation;
+            this.path = path;
+            this.body = body;
+        }
+    }
+
+    private final Operation[] operations;
+    private final int[] cumulativeWeights;
+    private final ZipfianGenerator ids;
+    private final int pageSize;
+    private final String runId;
+    private long addCount;
+
+    /**
+     * Constructs the workload.
+     *
+     * @param mix      the weights of the operations.
+     * @param ids      the generator of the IDs to read.
+     * @param pageSize the number of persons per listed page.
+     * @param runId    a string making the email addresses of the inserted
+     *                 persons unique to the run.
+     */
+    Workload(Map<Operation, Integer> mix,
+             ZipfianGenerator ids,
+             int pageSize,
+             String runId) {
+        this.operations = new Operation[mix.size()];
+        this.cumulativeWeights = new int[mix.size()];
+        this.ids = ids;
+        this.pageSize = pageSize;
+        this.runId = runId;
+
+        int index = 0;
+        int total = 0;
+
+        for (Map.Entry<Operation, Integer> entry : mix.entrySet()) {
+            total += entry.getValue();
+            operations[index] = entry.getKey();
+            cumulativeWeights[index] = total;
+            ++index;
+        }
+
+        if (total <= 0) {
+            throw new IllegalArgumentException(
+                    "The mix must have a positive weight.");
+        }
+    }
+
+    /**
+     * Parses a mix like {@code show=70,list=20,add=10}.
+     *
+     * @param mix the mix.
+     * @return the weights keyed by the operations.
+     */
+    static Map<Operation, Integer> parseMix(String mix) {
+        Map<Operation, Integer> weights = new EnumMap<>(Operation.class);
+
+        for (String part : mix.split(",")) {
+            String[] nameAndWeight = part.split("=");
+
+            if (nameAndWeight.length != 2) {
+                throw new IllegalArgumentException(
+                        "Bad mix: " + mix + "; use show=70,list=20,add=10.");
+            }
+
+            int weight = Integer.parseInt(nameAndWeight[1].trim());
+
+            if (weight < 0) {
+                throw new IllegalArgumentException(
+                        "Negative weight in the mix: " + mix);
+            }
+
+            if (weight > 0) {
+                weights.put(Operation.parse(nameAndWeight[0]), weight);
+            }
+        }
+
+        return weights;
+    }
+
+    /**
+     * Generates the next request.
+     *
+     * @param random the random number generator.
+     * @return the request.
+     */
+    Request next(Random random) {
+        int draw = random.nextInt(cumulativeWeights[
+                                  cumulativeWeights.length - 1]);
+        Operation operation = operations[operations.length - 1];
+
+        for (int i = 0; i < cumulativeWeights.length; ++i) {
+            if (draw < cumulativeWeights[i]) {
+                operation = operations[i];
+                break;
+            }
+        }
+
+        switch (operation) {
+            case SHOW:
+                return new Request(operation,
+                                   "/show/" + ids.next(random),
+                                   null);
+
+            case LIST:
+                return new Request(operation,
+                                   "/show?limit=" + pageSize + "&after=" +
+                                   (ids.next(random) - 1),
+                                   null);
+
+            default:
+                return new Request(operation,
+                                   "/add_person",
+                                   newPersonForm(random));
+        }
+    }
+
+    private byte[] newPersonForm(Random random) {
+        try {
+            String form =
+                    "first_name=" + randomName(random) +
+                    "&last_name=" + randomName(random) +
+                    "&email=" + URLEncoder.encode(
+                            "load" + runId + "-" + (addCount++) +
+                            "@example.com",
+                            "UTF-8");
+            return form.getBytes(StandardCharsets.UTF_8);
+        } catch (UnsupportedEncodingException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+
+    static String randomName(Random random) {
+        int length = 3 + random.nextInt(8);
+        char[] chars = new char[length];
+        chars[0] = (char)('A' + random.nextInt(26));
+
+        for (int i = 1; i < length; ++i) {
+            chars[i] = (char)('a' + random.nextInt(26));
+        }
+
+        return new String(chars);
+    }
+}
@@ -0,0 +1,108 @@
+package net.coderodde.dbfun.loadtest;
+
+import java.util.Random;
+
+/**
+ * This class draws IDs from {@code 1} to {@code n} following a Zipfian
+ * distribution, so that a few persons are read far more often than the rest,
+ * like in production. The ranks are drawn with the method of Gray et al.,
+ * "Quickly Generating Billion-Record Synthetic Databases", and then scattered
+ * over the IDs by hashing, so that the popular persons are not all the
+ * oldest ones and do not share pages.
+ *
+ * @author Rodion "rodde" Efremov
+ * @version 1.7 (Oct 18, 2026)
+ */
+final class ZipfianGenerator {
+
+    private static final long FNV_OFFSET_BASIS = 0xCBF29CE484222325L;
+    private static final long FNV_PRIME = 0x100000001B3L;
+
+    private final int n;
+    private final double theta;
+    private final double zetaN;
+    private final double alpha;
+    private final double eta;
+
+    /**
+     * Constructs the generator.
+     *
+     * @param n     the largest ID.
+     * @param theta the skew, in {@code [0, 1)}; 0 is uniform and 0.99 is the
+     *              usual choice.
+     */
+    ZipfianGenerator(int n, double theta) {
+        if (n < 1) {
+            throw new IllegalArgumentException("n must be positive: " + n);
+        }
+
+        if (theta < 0.0 || theta >= 1.0) {
+            throw new IllegalArgumentException(
+                    "theta must be in [0, 1): " + theta);
+        }
+
+        this.n = n;
+        this.theta = theta;
+        this.zetaN = zeta(n, theta);
+        this.alpha = 1.0 / (1.0 - theta);
+        this.eta = (1.0 - Math.pow(2.0 / n, 1.0 - theta)) /
+                   (1.0 - zeta(Math.min(n, 2), theta) / zetaN);
+    }
+
+    /**
+     * Draws an ID.
+     *
+     * @param random the random number generator.
+     * @return an ID from {@code 1} to {@code n}.
+     */
+    int next(Random random) {
+        return 1 + (int) ((fnv(nextRank(random)) & Long.MAX_VALUE) % n);
+    }
+
+    /**
+     * Draws a rank, 0 being the most popular.
+     *
+     * @param random the random number generator.
+     * @return a rank from {@code 0} to {@code n - 1}.
+     */
+    long nextRank(Random random) {
+        double u = random.nextDouble();
+        double uz = u * zetaN;
+
+        if (uz < 1.0) {
+            return 0L;
+        }
+
+        if (uz < 1.0 + Math.pow(0.5, theta)) {
+            return Math.min(1L, n - 1L);
+        }
+
+        long rank = (long) (n * Math.pow(eta * u - eta + 1.0, alpha));
+        return Math.min(rank, n - 1L);
+    }
+
+    private static double zeta(int n, double theta) {
+        double sum = 0.0;
+
+        for (int i = 1; i <= n; ++i) {
+            sum += 1.0 / Math.pow(i, theta);
+        }
+
+        return sum;
+    }
+
+    /**
+     * Hashes a rank with 64-bit FNV-1a over its bytes.
+     */
+    private static long fnv(long value) {
+        long hash = FNV_OFFSET_BASIS;
+
+        for (int i = 0; i < 8; ++i) {
+            hash ^= value & 0xFF;
+            hash *= FNV_PRIME;
+            value >>>= 8;
+        }
+
+        return hash;
+    }
+}
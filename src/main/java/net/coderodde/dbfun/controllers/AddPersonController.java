@@ -9,14 +9,83 @@ import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 
 /**
- * This controller is responsible for creating new persons.
+ * This controller is responsible for creating new persons. If 
+ * {@code DBFUN_ASYNC_INSERTS} is set, the persons are handed over to a 
+ * write-behind queue and the client gets {@code 202 Accepted} right away, or
+ * {@code 429 Too Many Requests} if the queue is full.
+ * 
+ * <p>With {@code upsert=true}, a person with the same email address is 
+ * updated instead; such requests are never queued since they report the ID.
  * 
  * @author Rodion "rodde" Efremov
  * @version 1.6 (Aug 8, 2017)
  */
-@WebServlet(name = "AddPersonController", urlPatterns = {"/add_person"})
+@WebServlet(name = "AddPersonController", 
+            urlPatterns = {"/add_person"}, 
+            asyncSupported = true)
 public class AddPersonController extends HttpServlet {
 
+    /**
+     * The write-behind queue or {@code null} if the persons are written 
+     * synchronously.
+     */
+    private static volatile PersonWriteQueue writeQueue;
+
+    /**
+     * Runs {@link #addPerson} on the database executor.
+     */
+    private final DatabaseExecutor.RequestHandler handler = 
+            new DatabaseExecutor.RequestHandler() {
+        
+        @Override
+        public void handle(HttpServletRequest request, 
+                           HttpServletResponse response) 
+                throws ServletException, IOException {
+            addPerson(request, response);
+        }
+    };
+
+    /**
+     * Creates the write-behind queue if asynchronous inserts are enabled.
+     * 
+     * @throws ServletException if a servlet-specific error occurs.
+     */
+    @Override
+    public void init() throws ServletException {
+        if (Configuration.getBoolean("DBFUN_ASYNC_INSERTS", false)) {
+            writeQueue = new PersonWriteQueue(
+                Configuration.getInt("DBFUN_ASYNC_QUEUE_CAPACITY", 10000),
+                Configuration.getInt("DBFUN_ASYNC_MAX_GROUP_SIZE", 500),
+                Configuration.getLong("DBFUN_ASYNC_MAX_LATENCY_MILLIS", 50L));
+        }
+    }
+
+    /**
+     * Writes the persons still in the write-behind queue.
+     */
+    @Override
+    public void destroy() {
+        PersonWriteQueue queue = writeQueue;
+        
+        if (queue != null) {
+            writeQueue = null;
+            queue.shutdown(
+                Configuration.getLong("DBFUN_ASYNC_DRAIN_TIMEOUT_MILLIS", 
+                                      30000L));
+        }
+    }
+    
+    /**
+     * Returns the statistics of the write-behind queue.
+     * 
+     * @return the queue statistics or {@code null} if the persons are written
+     *         synchronously.
+     */
+    static PersonWriteQueue.Statistics getWriteQueueStatistics() {
+        PersonWriteQueue queue = writeQueue;
+        return queue == null ? null : queue.getStatistics();
+    }
+
     /**
      * Handles the HTTP <code>GET</code> method.
      *
@@ -35,7 +104,9 @@ public class AddPersonController extends HttpServlet {
     }
 
     /**
-     * Handles the HTTP <code>POST</code> method.
+     * Handles the HTTP <code>POST</code> method. When writing behind, the 
+     * person is queued right away; otherwise the insertion runs on the 
+     * database executor.
      *
      * @param request  the servlet request.
      * @param response the servlet response.
@@ -45,6 +116,35 @@ public class AddPersonController extends HttpServlet {
     @Override
     protected void doPost(HttpServletRequest request, HttpServletResponse response)
             throws ServletException, IOException {
+        if (writeQueue != null && !isUpsert(request)) {
+            long start = System.nanoTime();
+            
+            try {
+                addPerson(request, response);
+            } catch (RuntimeException ex) {
+                Metrics.ADD_PERSON_SERVLET.failed();
+                throw ex;
+            } finally {
+                Metrics.ADD_PERSON_SERVLET.finished(start);
+            }
+        } else {
+            DatabaseExecutor.instance().dispatch(request, 
+                                                 response, 
+                                                 handler, 
+                                                 Metrics.ADD_PERSON_SERVLET);
+        }
+    }
+
+    /**
+     * Creates a new person from the request parameters.
+     *
+     * @param request  the servlet request.
+     * @param response the servlet response.
+     * @throws ServletException if a servlet-specific error occurs.
+     * @throws IOException if an I/O error occurs.
+     */
+    protected void addPerson(HttpServletRequest request, HttpServletResponse response)
+            throws ServletException, IOException {
         response.setContentType("text/html;charset=UTF-8");
 
         try (PrintWriter out = response.getWriter()) {
@@ -56,16 +156,45 @@ public class AddPersonController extends HttpServlet {
             person.setFirstName(firstName);
             person.setLastName(lastName);
             person.setEmail(email);
+            
+            PersonWriteQueue queue = writeQueue;
+            boolean upsert = isUpsert(request);
+            
+            if (queue != null && !upsert) {
+                if (queue.offer(person)) {
+                    response.setStatus(HttpServletResponse.SC_ACCEPTED);
+                    out.println("Person " + person + " accepted!");
+                } else {
+                    response.setStatus(429);
+                    response.setHeader("Retry-After", "1");
+                    out.println("Error: too many pending persons, " + 
+                                "try again later.");
+                }
+                
+                return;
+            }
 
             try {
-                DataAccessObject.instance().addPerson(person);
-                out.println("Person " + person + " created!");
+                DataAccessObject.instance().addPerson(person, upsert);
+                out.println("Person " + person + 
+                            (upsert ? " saved!" : " created!"));
             } catch (RuntimeException ex) {
                 out.println("Error: " + ex.getCause().getMessage());
             }
         }
     }
 
+    /**
+     * Checks whether the request asks to update the person with the same 
+     * email address, if any, instead of failing.
+     * 
+     * @param request the servlet request.
+     * @return {@code true} if the {@code upsert} parameter is {@code true}.
+     */
+    static boolean isUpsert(HttpServletRequest request) {
+        return Boolean.parseBoolean(request.getParameter("upsert"));
+    }
+
     /**
      * Returns a short description of the servlet.
      *
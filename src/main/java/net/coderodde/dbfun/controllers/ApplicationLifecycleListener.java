@@ -0,0 +1,69 @@
+package net.coderodde.dbfun.controllers;
+
+import javax.servlet.ServletContextEvent;
+import javax.servlet.ServletContextListener;
+import javax.servlet.annotation.WebListener;
+
+/**
+ * This listener loads the snapshot, the search index and the person
+ * statistics when the application is deployed and releases the database
+ * resources when it is undeployed.
+ * 
+ * @author Rodion "rodde" Efremov
+ * @version 1.7 (Oct 18, 2026)
+ */
+@WebListener
+public class ApplicationLifecycleListener implements ServletContextListener {
+
+    /**
+     * Starts loading the snapshot if {@code DBFUN_SNAPSHOT} is {@code true},
+     * the search index if {@code DBFUN_SEARCH_INDEX} is {@code true} and the
+     * statistics unless {@code DBFUN_STATS} is {@code false}. The other 
+     * database resources are created lazily.
+     * 
+     * @param event the servlet context event.
+     */
+    @Override
+    public void contextInitialized(ServletContextEvent event) {
+        if (PersonSnapshot.ENABLED) {
+            PersonSnapshot.instance().start();
+        }
+        
+        if (PersonSearchIndex.ENABLED) {
+            PersonSearchIndex.instance().loadInBackground();
+        }
+        
+        if (PersonStatistics.ENABLED) {
+            PersonStatistics.instance().start();
+        }
+    }
+
+    /**
+     * Stops the snapshot poller, the search index loader and the statistics
+     * reconciler, disconnects the stream clients, stops the database executor
+     * and closes the connection pool.
+     * 
+     * @param event the servlet context event.
+     */
+    @Override
+    public void contextDestroyed(ServletContextEvent event) {
+        if (PersonSnapshot.ENABLED) {
+            PersonSnapshot.instance().stop();
+        }
+        
+        if (PersonSearchIndex.ENABLED) {
+            PersonSearchIndex.instance().stop();
+        }
+        
+        if (PersonStatistics.ENABLED) {
+            PersonStatistics.instance().stop();
+        }
+        
+        if (PersonFeed.isStarted()) {
+            PersonFeed.instance().shutdown();
+        }
+        
+        DatabaseExecutor.instance().shutdown();
+        DataAccessObject.instance().shutdown();
+    }
+}
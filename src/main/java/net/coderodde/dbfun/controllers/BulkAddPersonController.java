@@ -0,0 +1,323 @@
+package net.coderodde.dbfun.controllers;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonParser;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.List;
+import javax.servlet.ServletException;
+import javax.servlet.annotation.WebServlet;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * This controller is responsible for importing many persons at a time. The
+ * request body is either a JSON array of person objects or newline-delimited
+ * JSON with one person object per line. Each person object has the fields
+ * {@code first_name}, {@code last_name} and {@code email}.
+ *
+ * <p>The persons are validated one by one and inserted in JDBC batches of
+ * {@code batch_size} persons (by default {@code DBFUN_BATCH_SIZE}), each batch
+ * in its own transaction. With {@code upsert=true}, a person whose email 
+ * address is already in the database updates the existing row instead of 
+ * failing, so that importing the same file twice does not add any rows. The
+ * response lists, for each person in the input, either the ID it got or the
+ * reason it was rejected.
+ *
+ * @author Rodion "rodde" Efremov
+ * @version 1.7 (Oct 18, 2026)
+ */
+@WebServlet(name = "BulkAddPersonController", urlPatterns = {"/add_persons"})
+public class BulkAddPersonController extends HttpServlet {
+
+    /**
+     * The default number of persons inserted per batch.
+     */
+    private static final int DEFAULT_BATCH_SIZE =
+            Configuration.getInt("DBFUN_BATCH_SIZE", 1000);
+
+    /**
+     * The largest batch size a client may ask for.
+     */
+    private static final int MAX_BATCH_SIZE = 10000;
+
+    /**
+     * Handles the HTTP <code>GET</code> method.
+     *
+     * @param request  the servlet request.
+     * @param response the servlet response.
+     * @throws ServletException if a servlet-specific error occurs.
+     * @throws IOException if an I/O error occurs.
+     */
+    @Override
+    protected void doGet(HttpServletRequest request, HttpServletResponse response)
+            throws ServletException, IOException {
+        response.setContentType("text/html;charset=UTF-8");
+        try (PrintWriter out = response.getWriter()) {
+            out.println("Please use the POST method!");
+        }
+    }
+
+    /**
+     * Handles the HTTP <code>POST</code> method.
+     *
+     * @param request  the servlet request.
+     * @param response the servlet response.
+     * @throws ServletException if a servlet-specific error occurs.
+     * @throws IOException if an I/O error occurs.
+     */
+    @Override
+    protected void doPost(HttpServletRequest request, HttpServletResponse response)
+            throws ServletException, IOException {
+        long start = System.nanoTime();
+        
+        try {
+            importPersons(request, response);
+        } catch (IOException | RuntimeException ex) {
+            Metrics.BULK_ADD_PERSON_SERVLET.failed();
+            throw ex;
+        } finally {
+            Metrics.BULK_ADD_PERSON_SERVLET.finished(start);
+        }
+    }
+    
+    /**
+     * Imports the persons in the request body.
+     *
+     * @param request  the servlet request.
+     * @param response the servlet response.
+     * @throws IOException if an I/O error occurs.
+     */
+    private void importPersons(HttpServletRequest request, 
+                               HttpServletResponse response) 
+            throws IOException {
+        int batchSize;
+
+        try {
+            String batchSizeString = request.getParameter("batch_size");
+            batchSize = batchSizeString == null ?
+                        DEFAULT_BATCH_SIZE :
+                        Integer.parseInt(batchSizeString);
+        } catch (NumberFormatException ex) {
+            batchSize = -1;
+        }
+
+        if (batchSize < 1) {
+            response.setContentType("text/plain;charset=UTF-8");
+            response.setStatus(HttpServletResponse.SC_BAD_REQUEST);
+
+            try (PrintWriter out = response.getWriter()) {
+                out.println("Error: batch_size must be a positive integer.");
+            }
+
+            return;
+        }
+
+        batchSize = Math.min(batchSize, MAX_BATCH_SIZE);
+        response.setContentType("application/json;charset=UTF-8");
+
+        try (BufferedReader in = request.getReader();
+             PrintWriter out = response.getWriter()) {
+            JsonReader jsonReader = new JsonReader(in);
+            JsonWriter jsonWriter = new JsonWriter(out);
+
+            // Lenient mode accepts several top-level values, i.e. NDJSON.
+            jsonReader.setLenient(true);
+            jsonWriter.beginObject();
+            jsonWriter.name("results");
+            jsonWriter.beginArray();
+
+            Import state = new Import(batchSize, 
+                                      AddPersonController.isUpsert(request),
+                                      jsonWriter);
+            String inputError = null;
+
+            try {
+                if (jsonReader.peek() == JsonToken.BEGIN_ARRAY) {
+                    jsonReader.beginArray();
+
+                    while (jsonReader.hasNext()) {
+                        state.add(new JsonParser().parse(jsonReader));
+                    }
+
+                    jsonReader.endArray();
+                } else {
+                    while (jsonReader.peek() != JsonToken.END_DOCUMENT) {
+                        state.add(new JsonParser().parse(jsonReader));
+                    }
+                }
+            } catch (IOException | JsonParseException | IllegalStateException ex) {
+                inputError = "Malformed input after " + state.index +
+                             " persons: " + ex.getMessage();
+            }
+
+            state.flush();
+            Metrics.BULK_ADD_PERSON_SERVLET.addRows(state.inserted);
+
+            jsonWriter.endArray();
+            jsonWriter.name("inserted").value(state.inserted);
+            jsonWriter.name("failed").value(state.failed);
+
+            if (inputError != null) {
+                jsonWriter.name("error").value(inputError);
+            }
+
+            jsonWriter.endObject();
+            jsonWriter.flush();
+            out.println();
+        }
+    }
+
+    /**
+     * Returns a short description of the servlet.
+     *
+     * @return a String containing servlet description
+     */
+    @Override
+    public String getServletInfo() {
+        return "This servlet adds many persons to the database at a time.";
+    }
+
+    /**
+     * Converts a JSON element to a person, validating it through the setters
+     * of {@link Person}.
+     *
+     * @param element the JSON element.
+     * @return the person.
+     * @throws IllegalArgumentException if the element is not a valid person.
+     */
+    private static Person toPerson(JsonElement element) {
+        if (!element.isJsonObject()) {
+            throw new IllegalArgumentException("Not a JSON object.");
+        }
+
+        JsonObject object = element.getAsJsonObject();
+        Person person = new Person();
+        person.setFirstName(getString(object, "first_name"));
+        person.setLastName(getString(object, "last_name"));
+        person.setEmail(getString(object, "email"));
+        return person;
+    }
+
+    private static String getString(JsonObject object, String name) {
+        JsonElement element = object.get(name);
+
+        if (element == null || element.isJsonNull()) {
+            throw new IllegalArgumentException("Missing " + name + ".");
+        }
+
+        if (!element.isJsonPrimitive()) {
+            throw new IllegalArgumentException(name + " is not a string.");
+        }
+
+        return element.getAsString();
+    }
+
+    /**
+     * Holds the state of a single import: the persons waiting for the next
+     * batch and the counters.
+     */
+    private static final class Import {
+
+        private final int batchSize;
+        private final boolean upsert;
+        private final JsonWriter jsonWriter;
+        private final List<Person> batch;
+        private final List<Integer> batchIndices;
+        private int index;
+        private int inserted;
+        private int failed;
+
+        Import(int batchSize, boolean upsert, JsonWriter jsonWriter) {
+            this.batchSize = batchSize;
+            this.upsert = upsert;
+            this.jsonWriter = jsonWriter;
+            this.batch = new ArrayList<>(batchSize);
+            this.batchIndices = new ArrayList<>(batchSize);
+        }
+
+        /**
+         * Validates a person and adds it to the current batch, inserting the
+         * batch if it is full.
+         *
+         * @param element the JSON element describing the person.
+         * @throws IOException if the response cannot be written.
+         */
+        void add(JsonElement element) throws IOException {
+            int personIndex = index++;
+            Person person;
+
+            try {
+                person = toPerson(element);
+            } catch (RuntimeException ex) {
+                writeFailure(personIndex, ex.getMessage());
+                return;
+            }
+
+            batch.add(person);
+            batchIndices.add(personIndex);
+
+            if (batch.size() == batchSize) {
+                flush();
+            }
+        }
+
+        /**
+         * Inserts the current batch and writes the results.
+         *
+         * @throws IOException if the response cannot be written.
+         */
+        void flush() throws IOException {
+            if (batch.isEmpty()) {
+                return;
+            }
+
+            String[] errors;
+
+            try {
+                errors = DataAccessObject.instance().addPersons(batch, upsert);
+            } catch (RuntimeException ex) {
+                String message = ex.getCause() != null ?
+                                 ex.getCause().getMessage() :
+                                 ex.getMessage();
+                errors = new String[batch.size()];
+
+                for (int i = 0; i < errors.length; ++i) {
+                    errors[i] = message;
+                }
+            }
+
+            for (int i = 0; i < errors.length; ++i) {
+                if (errors[i] == null) {
+                    jsonWriter.beginObject();
+                    jsonWriter.name("index").value(batchIndices.get(i));
+                    jsonWriter.name("id").value(batch.get(i).getId());
+                    jsonWriter.endObject();
+                    inserted++;
+                } else {
+                    writeFailure(batchIndices.get(i), errors[i]);
+                }
+            }
+
+            batch.clear();
+            batchIndices.clear();
+        }
+
+        private void writeFailure(int personIndex, String message)
+                throws IOException {
+            jsonWriter.beginObject();
+            jsonWriter.name("index").value(personIndex);
+            jsonWriter.name("error").value(message);
+            jsonWriter.endObject();
+            failed++;
+        }
+    }
+}
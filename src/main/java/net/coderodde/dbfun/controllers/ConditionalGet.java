@@ -0,0 +1,131 @@
+package net.coderodde.dbfun.controllers;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * This class implements the HTTP conditional {@code GET} for the responses
+ * computed from the person table. The validators are derived from the table
+ * version kept by {@link DataAccessObject}: the entity tag combines the time
+ * the application started with the version, so that it changes both on every
+ * write and on every restart, and the last modification time is the time of
+ * the latest write.
+ *
+ * @author Rodion "rodde" Efremov
+ * @version 1.7 (Oct 18, 2026)
+ */
+final class ConditionalGet {
+
+    /**
+     * Distinguishes the entity tags of different runs of the application.
+     */
+    private static final String EPOCH =
+            Long.toString(System.currentTimeMillis(), 36);
+
+    private ConditionalGet() {}
+
+    /**
+     * Returns the entity tag of the current table version.
+     *
+     * @param variant distinguishes the representations of the same resource,
+     *                for example the compressed one; empty for the default.
+     * @return the quoted entity tag.
+     */
+    static String getETag(String variant) {
+        return "\"" + EPOCH + "-" +
+               DataAccessObject.instance().getTableVersion() + variant + "\"";
+    }
+
+    /**
+     * Checks whether the client already has the current representation. The
+     * {@code If-None-Match} header takes precedence over
+     * {@code If-Modified-Since}.
+     *
+     * @param request the servlet request.
+     * @param etag    the current entity tag.
+     * @return {@code true} if the response may be {@code 304 Not Modified}.
+     */
+    static boolean isNotModified(HttpServletRequest request, String etag) {
+        if (!"GET".equals(request.getMethod()) &&
+                !"HEAD".equals(request.getMethod())) {
+            return false;
+        }
+
+        String ifNoneMatch = request.getHeader("If-None-Match");
+
+        if (ifNoneMatch != null) {
+            return matches(ifNoneMatch, etag);
+        }
+
+        long ifModifiedSince;
+
+        try {
+            ifModifiedSince = request.getDateHeader("If-Modified-Since");
+        } catch (IllegalArgumentException ex) {
+            return false;
+        }
+
+        return ifModifiedSince != -1L &&
+               ifModifiedSince >= getLastModifiedSeconds() * 1000L;
+    }
+
+    /**
+     * Sets the validators and the {@code Cache-Control} header.
+     *
+     * @param response     the servlet response.
+     * @param etag         the entity tag.
+     * @param cacheControl the value of the {@code Cache-Control} header or
+     *                     {@code null} for none.
+     */
+    static void setHeaders(HttpServletResponse response,
+                           String etag,
+                           String cacheControl) {
+        response.setHeader("ETag", etag);
+        response.setDateHeader("Last-Modified",
+                               getLastModifiedSeconds() * 1000L);
+
+        if (cacheControl != null) {
+            response.setHeader("Cache-Control", cacheControl);
+        }
+    }
+
+    /**
+     * Answers with {@code 304 Not Modified}.
+     *
+     * @param response     the servlet response.
+     * @param etag         the entity tag.
+     * @param cacheControl the value of the {@code Cache-Control} header or
+     *                     {@code null} for none.
+     */
+    static void sendNotModified(HttpServletResponse response,
+                                String etag,
+                                String cacheControl) {
+        setHeaders(response, etag, cacheControl);
+        response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+    }
+
+    /**
+     * The HTTP dates have a resolution of one second, so two writes within
+     * the same second share the last modification time; the entity tag tells
+     * them apart.
+     */
+    private static long getLastModifiedSeconds() {
+        return DataAccessObject.instance().getLastModifiedMillis() / 1000L;
+    }
+
+    private static boolean matches(String ifNoneMatch, String etag) {
+        for (String candidate : ifNoneMatch.split(",")) {
+            candidate = candidate.trim();
+
+            if (candidate.startsWith("W/")) {
+                candidate = candidate.substring(2);
+            }
+
+            if (candidate.equals("*") || candidate.equals(etag)) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+}
@@ -0,0 +1,108 @@
+package net.coderodde.dbfun.controllers;
+
+/**
+ * This class provides access to the configuration of the application. Each
+ * setting is first looked up among the system properties and then among the
+ * environment variables, so that the same names may be used both on Heroku and
+ * in a local run.
+ *
+ * @author Rodion "rodde" Efremov
+ * @version 1.7 (Oct 18, 2026)
+ */
+final class Configuration {
+
+    private Configuration() {}
+
+    /**
+     * Returns the value of the setting {@code name} or {@code null} if it is
+     * not set.
+     *
+     * @param name the name of the setting.
+     * @return the value of the setting.
+     */
+    static String getString(String name) {
+        String value = System.getProperty(name);
+
+        if (value == null) {
+            value = System.getenv(name);
+        }
+
+        if (value == null || value.trim().isEmpty()) {
+            return null;
+        }
+
+        return value.trim();
+    }
+
+    /**
+     * Returns the value of the setting {@code name} or
+     * {@code defaultValue} if it is not set.
+     *
+     * @param name         the name of the setting.
+     * @param defaultValue the default value.
+     * @return the value of the setting.
+     */
+    static String getString(String name, String defaultValue) {
+        String value = getString(name);
+        return value != null ? value : defaultValue;
+    }
+
+    /**
+     * Returns the integer value of the setting {@code name} or
+     * {@code defaultValue} if it is not set.
+     *
+     * @param name         the name of the setting.
+     * @param defaultValue the default value.
+     * @return the value of the setting.
+     */
+    static int getInt(String name, int defaultValue) {
+        String value = getString(name);
+
+        if (value == null) {
+            return defaultValue;
+        }
+
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException ex) {
+            throw new IllegalStateException(
+                    "Setting " + name + " is not an integer: " + value, ex);
+        }
+    }
+
+    /**
+     * Returns the long value of the setting {@code name} or
+     * {@code defaultValue} if it is not set.
+     *
+     * @param name         the name of the setting.
+     * @param defaultValue the default value.
+     * @return the value of the setting.
+     */
+    static long getLong(String name, long defaultValue) {
+        String value = getString(name);
+
+        if (value == null) {
+            return defaultValue;
+        }
+
+        try {
+            return Long.parseLong(value);
+        } catch (NumberFormatException ex) {
+            throw new IllegalStateException(
+                    "Setting " + name + " is not an integer: " + value, ex);
+        }
+    }
+
+    /**
+     * Returns the boolean value of the setting {@code name} or
+     * {@code defaultValue} if it is not set.
+     *
+     * @param name         the name of the setting.
+     * @param defaultValue the default value.
+     * @return the value of the setting.
+     */
+    static boolean getBoolean(String name, boolean defaultValue) {
+        String value = getString(name);
+        return value != null ? Boolean.parseBoolean(value) : defaultValue;
+    }
+}
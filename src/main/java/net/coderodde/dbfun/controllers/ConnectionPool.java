@@ -0,0 +1,613 @@
+package net.coderodde.dbfun.controllers;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * This class implements a bounded pool of JDBC connections. The connections
+ * handed out by {@link #borrow()} are proxies whose {@code close()} returns the
+ * underlying physical connection to the pool instead of closing it, so the
+ * usual try-with-resources idiom keeps working.
+ *
+ * <p>Idle connections are validated before they are handed out. If all
+ * {@code maxTotal} connections are in use, the borrowers wait for at most the
+ * borrow timeout after which a {@link SQLTimeoutException} is thrown.
+ *
+ * @author Rodion "rodde" Efremov
+ * @version 1.7 (Oct 18, 2026)
+ */
+public final class ConnectionPool implements AutoCloseable {
+
+    /**
+     * The JDBC URL of the database.
+     */
+    private final String url;
+
+    /**
+     * The user name used for logging in.
+     */
+    private final String username;
+
+    /**
+     * The password used for logging in.
+     */
+    private final String password;
+
+    /**
+     * The minimum number of idle connections to open up front.
+     */
+    private final int minIdle;
+
+    /**
+     * The maximum number of idle connections kept in the pool.
+     */
+    private final int maxIdle;
+
+    /**
+     * The maximum number of connections, both idle and borrowed.
+     */
+    private final int maxTotal;
+
+    /**
+     * The maximum time a borrower waits for a connection.
+     */
+    private final long borrowTimeoutNanos;
+
+    /**
+     * The number of seconds the validation of a connection may take.
+     */
+    private final int validationTimeoutSeconds;
+
+    /**
+     * Guards all the mutable state below.
+     */
+    private final ReentrantLock lock = new ReentrantLock();
+
+    /**
+     * Signalled whenever a connection is returned or a slot is freed.
+     */
+    private final Condition available = lock.newCondition();
+
+    /**
+     * The idle connections. The most recently returned one is the first.
+     */
+    private final Deque<Connection> idle = new ArrayDeque<>();
+
+    private int active;
+    private int opening;
+    private int waiters;
+    private long borrowCount;
+    private long totalBorrowWaitNanos;
+    private long maxBorrowWaitNanos;
+    private long timeoutCount;
+    private long validationFailureCount;
+    private long createdCount;
+    private long destroyedCount;
+    private boolean closed;
+
+    public ConnectionPool(String url,
+                          String username,
+                          String password,
+                          int minIdle,
+                          int maxIdle,
+                          int maxTotal,
+                          long borrowTimeoutMillis,
+                          int validationTimeoutSeconds) {
+        if (maxTotal < 1) {
+            throw new IllegalArgumentException(
+                    "The maximum number of connections must be positive.");
+        }
+
+        this.url = url;
+        this.username = username;
+        this.password = password;
+        this.maxTotal = maxTotal;
+        this.maxIdle = Math.max(0, Math.min(maxIdle, maxTotal));
+        this.minIdle = Math.max(0, Math.min(minIdle, this.maxIdle));
+        this.borrowTimeoutNanos =
+                TimeUnit.MILLISECONDS.toNanos(Math.max(0L, borrowTimeoutMillis));
+        this.validationTimeoutSeconds = Math.max(1, validationTimeoutSeconds);
+        fillIdle();
+    }
+
+    /**
+     * Borrows a connection from this pool. Closing the returned connection
+     * returns it to the pool.
+     *
+     * @return a valid connection.
+     * @throws SQLException if a connection cannot be obtained in time.
+     */
+    public Connection borrow() throws SQLException {
+        long startTime = System.nanoTime();
+        long deadline = startTime + borrowTimeoutNanos;
+
+        while (true) {
+            Connection physical = null;
+            lock.lock();
+
+            try {
+                while (true) {
+                    if (closed) {
+                        throw new SQLException("The connection pool is closed.");
+                    }
+
+                    physical = idle.pollFirst();
+
+                    if (physical != null) {
+                        active++;
+                        break;
+                    }
+
+                    if (active + opening < maxTotal) {
+                        opening++;
+                        break;
+                    }
+
+                    long remaining = deadline - System.nanoTime();
+
+                    if (remaining <= 0L) {
+                        timeoutCount++;
+                        throw new SQLTimeoutException(
+                                "Timed out waiting for a database connection " +
+                                "after " +
+                                TimeUnit.NANOSECONDS.toMillis(borrowTimeoutNanos) +
+                                " ms.");
+                    }
+
+                    waiters++;
+
+                    try {
+                        available.awaitNanos(remaining);
+                    } catch (InterruptedException ex) {
+                        Thread.currentThread().interrupt();
+                        throw new SQLException(
+                                "Interrupted while waiting for a connection.",
+                                ex);
+                    } finally {
+                        waiters--;
+                    }
+                }
+            } finally {
+                lock.unlock();
+            }
+
+            if (physical == null) {
+                physical = openNewConnection();
+            } else if (!isValid(physical)) {
+                discard(physical, true);
+                continue;
+            }
+
+            recordBorrow(System.nanoTime() - startTime);
+            return wrap(physical);
+        }
+    }
+
+    /**
+     * Returns a snapshot of the statistics of this pool.
+     *
+     * @return the statistics.
+     */
+    public Statistics getStatistics() {
+        lock.lock();
+
+        try {
+            return new Statistics(active,
+                                  idle.size(),
+                                  waiters,
+                                  borrowCount,
+                                  totalBorrowWaitNanos,
+                                  maxBorrowWaitNanos,
+                                  timeoutCount,
+                                  validationFailureCount,
+                                  createdCount,
+                                  destroyedCount);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Returns the number of borrowed connections plus the number of borrowers
+     * waiting for one. Cheaper than {@link #getStatistics()}.
+     *
+     * @return the load of this pool.
+     */
+    public int getLoad() {
+        lock.lock();
+
+        try {
+            return active + waiters;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Closes all the idle connections and makes this pool refuse any further
+     * borrowing. Borrowed connections are closed as they are returned.
+     */
+    @Override
+    public void close() {
+        List<Connection> connections;
+        lock.lock();
+
+        try {
+            closed = true;
+            connections = new ArrayList<>(idle);
+            idle.clear();
+            destroyedCount += connections.size();
+            available.signalAll();
+        } finally {
+            lock.unlock();
+        }
+
+        for (Connection connection : connections) {
+            closeQuietly(connection);
+        }
+    }
+
+    /**
+     * Opens up to {@code minIdle} connections. A failure is not fatal: the
+     * pool simply opens the connections on demand later.
+     */
+    private void fillIdle() {
+        for (int i = 0; i < minIdle; ++i) {
+            lock.lock();
+
+            try {
+                if (closed || active + opening + idle.size() >= maxTotal) {
+                    return;
+                }
+
+                opening++;
+            } finally {
+                lock.unlock();
+            }
+
+            Connection physical;
+
+            try {
+                physical = openNewConnection();
+            } catch (SQLException ex) {
+                return;
+            }
+
+            release(physical, false);
+        }
+    }
+
+    /**
+     * Opens a new physical connection. The caller must have reserved a slot by
+     * incrementing {@code opening}; on success, the slot turns into an active
+     * connection.
+     *
+     * @return a new physical connection.
+     * @throws SQLException if the connection cannot be opened.
+     */
+    private Connection openNewConnection() throws SQLException {
+        Connection physical = null;
+
+        try {
+            physical = DriverManager.getConnection(url, username, password);
+        } finally {
+            lock.lock();
+
+            try {
+                opening--;
+
+                if (physical != null) {
+                    active++;
+                    createdCount++;
+                } else {
+                    available.signal();
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        return physical;
+    }
+
+    private boolean isValid(Connection physical) {
+        try {
+            return physical.isValid(validationTimeoutSeconds);
+        } catch (SQLException ex) {
+            return false;
+        }
+    }
+
+    private void recordBorrow(long waitNanos) {
+        lock.lock();
+
+        try {
+            borrowCount++;
+            totalBorrowWaitNanos += waitNanos;
+
+            if (maxBorrowWaitNanos < waitNanos) {
+                maxBorrowWaitNanos = waitNanos;
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Returns a borrowed physical connection to the pool.
+     *
+     * @param physical the physical connection.
+     * @param broken   whether the connection is known to be unusable.
+     */
+    private void release(Connection physical, boolean broken) {
+        if (!broken) {
+            try {
+                if (physical.isClosed()) {
+                    broken = true;
+                } else if (!physical.getAutoCommit()) {
+                    physical.rollback();
+                    physical.setAutoCommit(true);
+                }
+            } catch (SQLException ex) {
+                broken = true;
+            }
+        }
+
+        if (broken) {
+            discard(physical, false);
+            return;
+        }
+
+        lock.lock();
+
+        try {
+            active--;
+
+            if (!closed && idle.size() < maxIdle) {
+                idle.offerFirst(physical);
+                physical = null;
+            } else {
+                destroyedCount++;
+            }
+
+            available.signal();
+        } finally {
+            lock.unlock();
+        }
+
+        if (physical != null) {
+            closeQuietly(physical);
+        }
+    }
+
+    /**
+     * Closes a borrowed physical connection and frees its slot.
+     *
+     * @param physical         the physical connection.
+     * @param failedValidation whether the connection failed the validation.
+     */
+    private void discard(Connection physical, boolean failedValidation) {
+        lock.lock();
+
+        try {
+            active--;
+            destroyedCount++;
+
+            if (failedValidation) {
+                validationFailureCount++;
+            }
+
+            available.signal();
+        } finally {
+            lock.unlock();
+        }
+
+        closeQuietly(physical);
+    }
+
+    private Connection wrap(Connection physical) {
+        return (Connection) Proxy.newProxyInstance(
+                ConnectionPool.class.getClassLoader(),
+                new Class<?>[]{ Connection.class },
+                new PooledConnectionHandler(physical));
+    }
+
+    private static void closeQuietly(Connection connection) {
+        try {
+            connection.close();
+        } catch (SQLException ex) {
+            // Nothing to do: the connection is thrown away anyway.
+        }
+    }
+
+    /**
+     * Forwards all the calls to the physical connection except
+     * {@code close()}, which returns the physical connection to the pool.
+     */
+    private final class PooledConnectionHandler implements InvocationHandler {
+
+        private final Connection physical;
+        private boolean closed;
+
+        PooledConnectionHandler(Connection physical) {
+            this.physical = physical;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args)
+                throws Throwable {
+            switch (method.getName()) {
+                case "close":
+                    if (!closed) {
+                        closed = true;
+                        release(physical, false);
+                    }
+
+                    return null;
+
+                case "isClosed":
+                    return closed || physical.isClosed();
+
+                case "equals":
+                    return proxy == args[0];
+
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+
+                case "toString":
+                    return "Pooled" + physical;
+            }
+
+            if (closed) {
+                throw new SQLException("The connection is closed.");
+            }
+
+            try {
+                return method.invoke(physical, args);
+            } catch (InvocationTargetException ex) {
+                throw ex.getCause();
+            }
+        }
+    }
+
+    /**
+     * This class holds a snapshot of the pool statistics.
+     */
+    public static final class Statistics {
+
+        private final int active;
+        private final int idle;
+        private final int waiters;
+        private final long borrowCount;
+        private final long totalBorrowWaitNanos;
+        private final long maxBorrowWaitNanos;
+        private final long timeoutCount;
+        private final long validationFailureCount;
+        private final long createdCount;
+        private final long destroyedCount;
+
+        Statistics(int active,
+                   int idle,
+                   int waiters,
+                   long borrowCount,
+                   long totalBorrowWaitNanos,
+                   long maxBorrowWaitNanos,
+                   long timeoutCount,
+                   long validationFailureCount,
+                   long createdCount,
+                   long destroyedCount) {
+            this.active = active;
+            this.idle = idle;
+            this.waiters = waiters;
+            this.borrowCount = borrowCount;
+            this.totalBorrowWaitNanos = totalBorrowWaitNanos;
+            this.maxBorrowWaitNanos = maxBorrowWaitNanos;
+            this.timeoutCount = timeoutCount;
+            this.validationFailureCount = validationFailureCount;
+            this.createdCount = createdCount;
+            this.destroyedCount = destroyedCount;
+        }
+
+        /**
+         * @return the number of borrowed connections.
+         */
+        public int getActive() {
+            return active;
+        }
+
+        /**
+         * @return the number of idle connections.
+         */
+        public int getIdle() {
+            return idle;
+        }
+
+        /**
+         * @return the number of threads waiting for a connection.
+         */
+        public int getWaiters() {
+            return waiters;
+        }
+
+        /**
+         * @return the number of successful borrows.
+         */
+        public long getBorrowCount() {
+            return borrowCount;
+        }
+
+        /**
+         * @return the total time spent waiting for connections.
+         */
+        public long getTotalBorrowWaitNanos() {
+            return totalBorrowWaitNanos;
+        }
+
+        /**
+         * @return the average time spent waiting for a connection.
+         */
+        public long getAverageBorrowWaitNanos() {
+            return borrowCount == 0L ? 0L : totalBorrowWaitNanos / borrowCount;
+        }
+
+        /**
+         * @return the longest time spent waiting for a connection.
+         */
+        public long getMaxBorrowWaitNanos() {
+            return maxBorrowWaitNanos;
+        }
+
+        /**
+         * @return the number of borrows that timed out.
+         */
+        public long getTimeoutCount() {
+            return timeoutCount;
+        }
+
+        /**
+         * @return the number of idle connections that failed the validation.
+         */
+        public long getValidationFailureCount() {
+            return validationFailureCount;
+        }
+
+        /**
+         * @return the number of physical connections opened.
+         */
+        public long getCreatedCount() {
+            return createdCount;
+        }
+
+        /**
+         * @return the number of physical connections closed.
+         */
+        public long getDestroyedCount() {
+            return destroyedCount;
+        }
+
+        @Override
+        public String toString() {
+            return "{active=" + active + ", idle=" + idle +
+                   ", waiters=" + waiters + ", borrowCount=" + borrowCount +
+                   ", averageBorrowWaitNanos=" + getAverageBorrowWaitNanos() +
+                   ", maxBorrowWaitNanos=" + maxBorrowWaitNanos +
+                   ", timeoutCount=" + timeoutCount +
+                   ", validationFailureCount=" + validationFailureCount +
+                   ", createdCount=" + createdCount +
+                   ", destroyedCount=" + destroyedCount + "}";
+        }
+    }
+}
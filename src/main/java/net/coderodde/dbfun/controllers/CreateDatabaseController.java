@@ -14,9 +14,25 @@ import javax.servlet.http.HttpServletResponse;
  * @author Rodion "rodde" Efremov
  * @version 1.6 (Aug 8, 2017)
  */
-@WebServlet(name = "CreateDatabaseController", urlPatterns = {"/createdb"})
+@WebServlet(name = "CreateDatabaseController", 
+            urlPatterns = {"/createdb"}, 
+            asyncSupported = true)
 public class CreateDatabaseController extends HttpServlet {
 
+    /**
+     * Runs {@link #processRequest} on the database executor.
+     */
+    private final DatabaseExecutor.RequestHandler handler = 
+            new DatabaseExecutor.RequestHandler() {
+        
+        @Override
+        public void handle(HttpServletRequest request, 
+                           HttpServletResponse response) 
+                throws ServletException, IOException {
+            processRequest(request, response);
+        }
+    };
+
 
     /**
      * If not yet created, this request creates the database and the table.
@@ -51,7 +67,10 @@ public class CreateDatabaseController extends HttpServlet {
     @Override
     protected void doGet(HttpServletRequest request, HttpServletResponse response)
             throws ServletException, IOException {
-        processRequest(request, response);
+        DatabaseExecutor.instance().dispatch(request, 
+                                             response, 
+                                             handler, 
+                                             Metrics.CREATE_DATABASE_SERVLET);
     }
 
     /**
@@ -65,7 +84,10 @@ public class CreateDatabaseController extends HttpServlet {
     @Override
     protected void doPost(HttpServletRequest request, HttpServletResponse response)
             throws ServletException, IOException {
-        processRequest(request, response);
+        DatabaseExecutor.instance().dispatch(request, 
+                                             response, 
+                                             handler, 
+                                             Metrics.CREATE_DATABASE_SERVLET);
     }
 
     /**
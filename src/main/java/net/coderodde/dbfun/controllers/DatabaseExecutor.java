@@ -0,0 +1,498 @@
+package net.coderodde.dbfun.controllers;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.servlet.AsyncContext;
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * This class runs the database-bound part of the requests off the container
+ * threads. A request is put into asynchronous mode and handled by a bounded
+ * executor: virtual threads when the JVM has them, a fixed pool of platform
+ * threads otherwise. At most {@code DBFUN_DB_EXECUTOR_THREADS} requests run,
+ * but no more than the {@code DBFUN_POOL_MAX_TOTAL} connections, and at most
+ * {@code DBFUN_DB_EXECUTOR_QUEUE} more wait; any further request is answered
+ * with {@code 503 Service Unavailable}, as is a request that does not finish
+ * in {@code DBFUN_DB_REQUEST_TIMEOUT_MILLIS}.
+ *
+ * <p>A handler gets the response wrapped in a {@link FencedResponse}. When a
+ * request times out while its handler runs, the response is fenced off, so
+ * the handler can no longer touch it once the container has completed it,
+ * and the handler thread is interrupted. If the handler is in the middle of a
+ * write, which may be stuck on a slow client, the timeout does not wait for
+ * it; the handler fails once the write returns and then completes the request
+ * itself.
+ *
+ * @author Rodion "rodde" Efremov
+ * @version 1.7 (Oct 18, 2026)
+ */
+public final class DatabaseExecutor {
+
+    /**
+     * This interface defines the API for the request handlers run by the
+     * executor.
+     */
+    public interface RequestHandler {
+
+        /**
+         * Handles the request.
+         *
+         * @param request  the servlet request.
+         * @param response the servlet response.
+         * @throws ServletException if a servlet-specific error occurs.
+         * @throws IOException if an I/O error occurs.
+         */
+        void handle(HttpServletRequest request, HttpServletResponse response)
+                throws ServletException, IOException;
+    }
+
+    private static final Logger LOGGER =
+            Logger.getLogger(DatabaseExecutor.class.getName());
+
+    /**
+     * The number of seconds the clients are told to wait after a 503.
+     */
+    private static final String RETRY_AFTER_SECONDS = "1";
+
+    /**
+     * The states of a dispatched request.
+     */
+    private static final int QUEUED = 0;
+    private static final int RUNNING = 1;
+    private static final int DONE = 2;
+
+    /**
+     * Holds the executor. Created on first use.
+     */
+    private static final class Holder {
+        static final DatabaseExecutor INSTANCE = new DatabaseExecutor();
+    }
+
+    private final ExecutorService executor;
+    private final Semaphore permits;
+
+    /**
+     * Limits the requests handled at a time on virtual threads, or 
+     * {@code null} if the threads of the pool do.
+     */
+    private final Semaphore runSlots;
+    private final int maxInFlight;
+    private final long timeoutMillis;
+    private final long streamTimeoutMillis;
+    private final boolean virtualThreads;
+    private final AtomicLong rejectedCount = new AtomicLong();
+    private final AtomicLong timeoutCount = new AtomicLong();
+
+    private DatabaseExecutor() {
+        // A request beyond the connections would only wait for one, holding
+        // a thread and counting as running.
+        int threads = Math.max(1, Math.min(
+                Configuration.getInt("DBFUN_DB_EXECUTOR_THREADS", 16),
+                Configuration.getInt("DBFUN_POOL_MAX_TOTAL", 10)));
+        int queueCapacity = Configuration.getInt("DBFUN_DB_EXECUTOR_QUEUE", 100);
+        ExecutorService virtualExecutor = createVirtualThreadExecutor();
+
+        this.maxInFlight = threads + queueCapacity;
+        this.permits = new Semaphore(maxInFlight);
+        this.runSlots = virtualExecutor != null ? new Semaphore(threads) : null;
+        this.timeoutMillis =
+                Configuration.getLong("DBFUN_DB_REQUEST_TIMEOUT_MILLIS", 10000L);
+        this.streamTimeoutMillis =
+                Configuration.getLong("DBFUN_DB_STREAM_TIMEOUT_MILLIS", 0L);
+        this.virtualThreads = virtualExecutor != null;
+        this.executor = virtualExecutor != null ?
+                        virtualExecutor :
+                        createPlatformThreadExecutor(threads, queueCapacity);
+    }
+
+    public static DatabaseExecutor instance() {
+        return Holder.INSTANCE;
+    }
+
+    /**
+     * Handles the request asynchronously on the executor. The latency of the
+     * request, from now until the response is complete, is recorded in 
+     * {@code metrics}, as are the responses with a 5xx status. Whether the 
+     * reads must go to the primary is carried over to the executor thread.
+     *
+     * @param request  the servlet request.
+     * @param response the servlet response.
+     * @param handler  the handler doing the actual work.
+     * @param metrics  the metrics of the servlet.
+     * @throws IOException if the 503 response cannot be sent.
+     */
+    public void dispatch(HttpServletRequest request,
+                         HttpServletResponse response,
+                         RequestHandler handler,
+                         OperationMetrics metrics) throws IOException {
+        dispatch(request, response, handler, metrics, timeoutMillis);
+    }
+
+    /**
+     * Handles a request streaming a long response like {@link #dispatch},
+     * but with the timeout {@code DBFUN_DB_STREAM_TIMEOUT_MILLIS}, by default
+     * none, since a timeout can only cut such a response off.
+     *
+     * @param request  the servlet request.
+     * @param response the servlet response.
+     * @param handler  the handler doing the actual work.
+     * @param metrics  the metrics of the servlet.
+     * @throws IOException if the 503 response cannot be sent.
+     */
+    public void dispatchStreaming(HttpServletRequest request,
+                                  HttpServletResponse response,
+                                  RequestHandler handler,
+                                  OperationMetrics metrics) 
+            throws IOException {
+        dispatch(request, response, handler, metrics, streamTimeoutMillis);
+    }
+
+    private void dispatch(HttpServletRequest request,
+                          HttpServletResponse response,
+                          final RequestHandler handler,
+                          final OperationMetrics metrics,
+                          long requestTimeoutMillis) throws IOException {
+        final long start = System.nanoTime();
+        
+        if (!permits.tryAcquire()) {
+            rejectedCount.incrementAndGet();
+            sendUnavailable(response, "the database is too busy");
+            metrics.failed();
+            metrics.finished(start);
+            return;
+        }
+
+        final AsyncContext asyncContext = request.startAsync(request, response);
+        final FencedResponse fencedResponse = new FencedResponse(response);
+        // Whoever moves the state out of QUEUED owns the response: the worker
+        // by starting to handle the request, the container by timing it out.
+        final AtomicInteger state = new AtomicInteger(QUEUED);
+        final FutureHolder future = new FutureHolder();
+        final boolean primaryReads = ReplicaRouter.isPrimaryReads();
+        asyncContext.setTimeout(requestTimeoutMillis);
+        asyncContext.addListener(new AsyncListener() {
+
+            @Override
+            public void onTimeout(AsyncEvent event) throws IOException {
+                if (state.compareAndSet(QUEUED, DONE)) {
+                    // The worker has not started and will not touch anything.
+                    future.cancel(true);
+                    permits.release();
+                } else if (!fencedResponse.fence()) {
+                    // A write is in progress, maybe stuck on a slow client.
+                    // The worker fails once it returns and then completes the
+                    // request, so the response is never used by both.
+                    timeoutCount.incrementAndGet();
+                    return;
+                } else if (state.compareAndSet(RUNNING, DONE)) {
+                    future.cancel(true);
+                } else {
+                    return;
+                }
+
+                timeoutCount.incrementAndGet();
+                sendUnavailable(
+                        (HttpServletResponse) asyncContext.getResponse(),
+                        "the request timed out");
+                asyncContext.complete();
+            }
+
+            @Override
+            public void onError(AsyncEvent event) {
+                fencedResponse.fence();
+
+                if (state.compareAndSet(QUEUED, DONE)) {
+                    future.cancel(true);
+                    permits.release();
+                } else if (state.compareAndSet(RUNNING, DONE)) {
+                    future.cancel(true);
+                }
+            }
+
+            @Override
+            public void onComplete(AsyncEvent event) {
+                HttpServletResponse completedResponse = 
+                        (HttpServletResponse) asyncContext.getResponse();
+                
+                if (completedResponse.getStatus() >= 500) {
+                    metrics.failed();
+                }
+                
+                metrics.finished(start);
+            }
+
+            @Override
+            public void onStartAsync(AsyncEvent event) {}
+        });
+
+        try {
+            future.set(executor.submit(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        if (runSlots != null) {
+                            runSlots.acquire();
+                        }
+                    } catch (InterruptedException ex) {
+                        // Timed out while waiting for a slot.
+                        return;
+                    }
+
+                    if (!state.compareAndSet(QUEUED, RUNNING)) {
+                        releaseRunSlot();
+                        return;
+                    }
+
+                    ReplicaRouter.setPrimaryReads(primaryReads);
+                    
+                    try {
+                        handler.handle(
+                                (HttpServletRequest) asyncContext.getRequest(),
+                                fencedResponse);
+                    } catch (ServletException | IOException |
+                             RuntimeException ex) {
+                        if (fencedResponse.isFenced()) {
+                            LOGGER.log(Level.FINE, 
+                                       "Abandoned a timed out request.", 
+                                       ex);
+                        } else {
+                            LOGGER.log(Level.SEVERE, "Request failed.", ex);
+                            sendError(fencedResponse);
+                        }
+                    } finally {
+                        ReplicaRouter.setPrimaryReads(false);
+                        releaseRunSlot();
+                        permits.release();
+
+                        if (state.compareAndSet(RUNNING, DONE)) {
+                            asyncContext.complete();
+                        }
+                    }
+                }
+            }));
+        } catch (RejectedExecutionException ex) {
+            if (state.compareAndSet(QUEUED, DONE)) {
+                permits.release();
+                rejectedCount.incrementAndGet();
+                sendUnavailable(response, "the database is too busy");
+                asyncContext.complete();
+            }
+        }
+    }
+
+    /**
+     * Runs a task on the executor within the same bounds as the dispatched
+     * requests, for a request that manages its asynchronous context itself.
+     * The task has no timeout.
+     *
+     * @param task the task.
+     * @return {@code false} if the executor is too busy to take the task.
+     */
+    public boolean execute(final Runnable task) {
+        if (!permits.tryAcquire()) {
+            rejectedCount.incrementAndGet();
+            return false;
+        }
+
+        try {
+            executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        if (runSlots != null) {
+                            runSlots.acquire();
+                        }
+                    } catch (InterruptedException ex) {
+                        permits.release();
+                        return;
+                    }
+
+                    try {
+                        task.run();
+                    } finally {
+                        releaseRunSlot();
+                        permits.release();
+                    }
+                }
+            });
+            return true;
+        } catch (RejectedExecutionException ex) {
+            permits.release();
+            rejectedCount.incrementAndGet();
+            return false;
+        }
+    }
+
+    /**
+     * @return the number of requests running or waiting.
+     */
+    public int getInFlightCount() {
+        return maxInFlight - permits.availablePermits();
+    }
+
+    /**
+     * @return the number of requests rejected due to saturation.
+     */
+    public long getRejectedCount() {
+        return rejectedCount.get();
+    }
+
+    /**
+     * @return the number of requests that timed out.
+     */
+    public long getTimeoutCount() {
+        return timeoutCount.get();
+    }
+
+    /**
+     * @return {@code true} if the requests run on virtual threads.
+     */
+    public boolean usesVirtualThreads() {
+        return virtualThreads;
+    }
+
+    /**
+     * Stops the executor, letting the running requests finish.
+     */
+    public void shutdown() {
+        executor.shutdown();
+
+        try {
+            executor.awaitTermination(timeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void releaseRunSlot() {
+        if (runSlots != null) {
+            runSlots.release();
+        }
+    }
+
+    /**
+     * Answers with {@code 503 Service Unavailable} unless the response is
+     * already committed.
+     *
+     * @param response the servlet response.
+     * @param reason   the reason given in the body.
+     * @throws IOException if the response cannot be written.
+     */
+    static void sendUnavailable(HttpServletResponse response,
+                                String reason) throws IOException {
+        if (response.isCommitted()) {
+            return;
+        }
+
+        response.reset();
+        response.setStatus(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+        response.setHeader("Retry-After", RETRY_AFTER_SECONDS);
+        response.setContentType("text/plain;charset=UTF-8");
+
+        try (PrintWriter out = response.getWriter()) {
+            out.println("Error: " + reason + ".");
+        }
+    }
+
+    private static void sendError(HttpServletResponse response) {
+        if (response.isCommitted()) {
+            return;
+        }
+
+        try {
+            response.sendError(
+                    HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
+        } catch (IOException | IllegalStateException ex) {
+            // The client is gone; nothing to report to.
+        }
+    }
+
+    /**
+     * Holds the future of a request, which the listener may need before the
+     * submission returns.
+     */
+    private static final class FutureHolder {
+
+        private Future<?> future;
+        private boolean cancelled;
+        private boolean interrupt;
+
+        synchronized void set(Future<?> future) {
+            this.future = future;
+
+            if (cancelled) {
+                future.cancel(interrupt);
+            }
+        }
+
+        synchronized void cancel(boolean mayInterrupt) {
+            cancelled = true;
+            interrupt = mayInterrupt;
+
+            if (future != null) {
+                future.cancel(mayInterrupt);
+            }
+        }
+    }
+
+    /**
+     * Creates a virtual-thread-per-task executor if the JVM supports virtual
+     * threads. Reflection is used since the code is compiled for older JVMs.
+     *
+     * @return the executor or {@code null} if virtual threads are unavailable
+     *         or disabled.
+     */
+    private static ExecutorService createVirtualThreadExecutor() {
+        if (!Configuration.getBoolean("DBFUN_VIRTUAL_THREADS", true)) {
+            return null;
+        }
+
+        try {
+            return (ExecutorService)
+                    Executors.class
+                            .getMethod("newVirtualThreadPerTaskExecutor")
+                            .invoke(null);
+        } catch (ReflectiveOperationException | RuntimeException ex) {
+            return null;
+        }
+    }
+
+    private static ExecutorService createPlatformThreadExecutor(
+            int threads, int queueCapacity) {
+        final AtomicInteger threadNumber = new AtomicInteger();
+
+        return new ThreadPoolExecutor(
+                threads,
+                threads,
+                0L,
+                TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<Runnable>(Math.max(1, queueCapacity)),
+                new ThreadFactory() {
+                    @Override
+                    public Thread newThread(Runnable runnable) {
+                        Thread thread = new Thread(
+                                runnable,
+                                "dbfun-db-" + threadNumber.incrementAndGet());
+                        thread.setDaemon(true);
+                        return thread;
+                    }
+                });
+    }
+}
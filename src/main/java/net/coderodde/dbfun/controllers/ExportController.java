@@ -0,0 +1,125 @@
+package net.coderodde.dbfun.controllers;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.concurrent.Semaphore;
+import javax.servlet.ServletException;
+import javax.servlet.annotation.WebServlet;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * This controller exports the person table for analytics.
+ * {@code /export?format=ndjson} streams all the persons as newline-delimited
+ * JSON and {@code /export?format=csv} as CSV, in ascending ID order, scanned
+ * in parallel by {@link PersonExporter}. {@code /export?after=ID} resumes an
+ * interrupted export after the ID of the last complete line received; the
+ * CSV header is then left out. At most {@code DBFUN_EXPORT_MAX_CONCURRENT}
+ * exports run at a time, the others are answered with
+ * {@code 503 Service Unavailable}; together they use at most
+ * {@code DBFUN_EXPORT_MAX_CONNECTIONS} connections.
+ *
+ * @author Rodion "rodde" Efremov
+ * @version 1.7 (Oct 18, 2026)
+ */
+@WebServlet(name = "ExportController", urlPatterns = {"/export"})
+public class ExportController extends HttpServlet {
+
+    /**
+     * Limits the concurrent exports, which share the export connections.
+     */
+    private static final Semaphore EXPORTS = new Semaphore(
+            Math.max(1, Configuration.getInt("DBFUN_EXPORT_MAX_CONCURRENT",
+                                             2)));
+
+    /**
+     * Handles the HTTP <code>GET</code> method.
+     *
+     * @param request  the servlet request.
+     * @param response the servlet response.
+     * @throws ServletException if a servlet-specific error occurs.
+     * @throws IOException if an I/O error occurs.
+     */
+    @Override
+    protected void doGet(HttpServletRequest request, HttpServletResponse response)
+            throws ServletException, IOException {
+        long start = System.nanoTime();
+
+        try {
+            export(request, response);
+        } catch (IOException | RuntimeException ex) {
+            Metrics.EXPORT_SERVLET.failed();
+            throw ex;
+        } finally {
+            Metrics.EXPORT_SERVLET.finished(start);
+        }
+    }
+
+    private static void export(HttpServletRequest request,
+                               HttpServletResponse response)
+            throws IOException {
+        String afterString = request.getParameter("after");
+        PersonExporter.Format format;
+        int afterId;
+
+        try {
+            format = PersonExporter.Format.parse(
+                    request.getParameter("format"));
+            afterId = afterString == null || afterString.isEmpty() ?
+                      0 :
+                      Integer.parseInt(afterString);
+        } catch (IllegalArgumentException ex) {
+            sendError(response,
+                      HttpServletResponse.SC_BAD_REQUEST,
+                      "use /export?format=ndjson|csv&after=ID with an " +
+                      "integer ID");
+            return;
+        }
+
+        if (!EXPORTS.tryAcquire()) {
+            response.setHeader("Retry-After", "10");
+            sendError(response,
+                      HttpServletResponse.SC_SERVICE_UNAVAILABLE,
+                      "too many exports are running");
+            return;
+        }
+
+        try {
+            response.setContentType(format.getContentType() +
+                                    ";charset=UTF-8");
+            response.setHeader("Content-Disposition",
+                               "attachment; filename=\"persons." +
+                               format.getExtension() + "\"");
+            Metrics.EXPORT_SERVLET.addRows(
+                    new PersonExporter(format).export(
+                            afterId,
+                            afterString == null,
+                            response.getOutputStream(),
+                            null));
+        } finally {
+            EXPORTS.release();
+        }
+    }
+
+    private static void sendError(HttpServletResponse response,
+                                  int status,
+                                  String message) throws IOException {
+        response.setStatus(status);
+        response.setContentType("text/plain;charset=UTF-8");
+
+        try (PrintWriter out = response.getWriter()) {
+            out.println("Error: " + message + ".");
+        }
+    }
+
+    /**
+     * Returns a short description of the servlet.
+     *
+     * @return a String containing servlet description
+     */
+    @Override
+    public String getServletInfo() {
+        return "Exports the persons as NDJSON or CSV.";
+    }
+}
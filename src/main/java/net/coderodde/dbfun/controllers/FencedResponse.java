@@ -0,0 +1,450 @@
+package net.coderodde.dbfun.controllers;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.Writer;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
+import javax.servlet.http.Cookie;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpServletResponseWrapper;
+
+/**
+ * This class wraps the response handed to a request handler on the
+ * {@link DatabaseExecutor}, so that the handler can be cut off once the
+ * request has timed out. After {@link #fence()}, nothing more reaches the
+ * wrapped response, which the container may already have recycled for
+ * another request: the header and status changes are dropped and the writes
+ * fail with an {@link IOException}, which also stops a handler that is still
+ * streaming. The header and status changes are made under the same lock as
+ * the fence, so they never overlap with the container's own changes. The
+ * writes are made without the lock, since they may block on a slow client;
+ * the fence is checked before and after each of them, and the fence reports
+ * whether one was in progress, in which case the container must leave the
+ * response alone.
+ *
+ * @author Rodion "rodde" Efremov
+ * @version 1.7 (Oct 18, 2026)
+ */
+final class FencedResponse extends HttpServletResponseWrapper {
+
+    private final Object lock = new Object();
+    private final AtomicInteger activeWrites = new AtomicInteger();
+    private volatile boolean fenced;
+    private ServletOutputStream outputStream;
+    private PrintWriter writer;
+
+    FencedResponse(HttpServletResponse response) {
+        super(response);
+    }
+
+    /**
+     * Stops passing anything on to the wrapped response. Waits for a header
+     * or status change in progress to finish, but not for a write.
+     *
+     * @return {@code true} if no write was in progress, so the wrapped 
+     *         response is no longer used by the handler.
+     */
+    boolean fence() {
+        fenced = true;
+
+        synchronized (lock) {
+            // No header or status change is in progress once here.
+        }
+
+        return activeWrites.get() == 0;
+    }
+
+    /**
+     * @return {@code true} if the response has been fenced.
+     */
+    boolean isFenced() {
+        return fenced;
+    }
+
+    @Override
+    public ServletOutputStream getOutputStream() throws IOException {
+        synchronized (lock) {
+            checkNotFenced();
+
+            if (outputStream == null) {
+                outputStream = new FencedOutputStream(
+                        getResponse().getOutputStream());
+            }
+
+            return outputStream;
+        }
+    }
+
+    @Override
+    public PrintWriter getWriter() throws IOException {
+        synchronized (lock) {
+            checkNotFenced();
+
+            if (writer == null) {
+                writer = new PrintWriter(
+                        new FencedWriter(getResponse().getWriter()));
+            }
+
+            return writer;
+        }
+    }
+
+    @Override
+    public boolean isCommitted() {
+        return fenced || super.isCommitted();
+    }
+
+    @Override
+    public void setStatus(int status) {
+        synchronized (lock) {
+            if (!fenced) {
+                super.setStatus(status);
+            }
+        }
+    }
+
+    @Override
+    @SuppressWarnings("deprecation")
+    public void setStatus(int status, String message) {
+        synchronized (lock) {
+            if (!fenced) {
+                super.setStatus(status, message);
+            }
+        }
+    }
+
+    @Override
+    public void sendError(int status) throws IOException {
+        synchronized (lock) {
+            if (!fenced) {
+                super.sendError(status);
+            }
+        }
+    }
+
+    @Override
+    public void sendError(int status, String message) throws IOException {
+        synchronized (lock) {
+            if (!fenced) {
+                super.sendError(status, message);
+            }
+        }
+    }
+
+    @Override
+    public void sendRedirect(String location) throws IOException {
+        synchronized (lock) {
+            if (!fenced) {
+                super.sendRedirect(location);
+            }
+        }
+    }
+
+    @Override
+    public void setHeader(String name, String value) {
+        synchronized (lock) {
+            if (!fenced) {
+                super.setHeader(name, value);
+            }
+        }
+    }
+
+    @Override
+    public void addHeader(String name, String value) {
+        synchronized (lock) {
+            if (!fenced) {
+                super.addHeader(name, value);
+            }
+        }
+    }
+
+    @Override
+    public void setIntHeader(String name, int value) {
+        synchronized (lock) {
+            if (!fenced) {
+                super.setIntHeader(name, value);
+            }
+        }
+    }
+
+    @Override
+    public void addIntHeader(String name, int value) {
+        synchronized (lock) {
+            if (!fenced) {
+                super.addIntHeader(name, value);
+            }
+        }
+    }
+
+    @Override
+    public void setDateHeader(String name, long date) {
+        synchronized (lock) {
+            if (!fenced) {
+                super.setDateHeader(name, date);
+            }
+        }
+    }
+
+    @Override
+    public void addDateHeader(String name, long date) {
+        synchronized (lock) {
+            if (!fenced) {
+                super.addDateHeader(name, date);
+            }
+        }
+    }
+
+    @Override
+    public void addCookie(Cookie cookie) {
+        synchronized (lock) {
+            if (!fenced) {
+                super.addCookie(cookie);
+            }
+        }
+    }
+
+    @Override
+    public void setContentType(String type) {
+        synchronized (lock) {
+            if (!fenced) {
+                super.setContentType(type);
+            }
+        }
+    }
+
+    @Override
+    public void setCharacterEncoding(String charset) {
+        synchronized (lock) {
+            if (!fenced) {
+                super.setCharacterEncoding(charset);
+            }
+        }
+    }
+
+    @Override
+    public void setContentLength(int length) {
+        synchronized (lock) {
+            if (!fenced) {
+                super.setContentLength(length);
+            }
+        }
+    }
+
+    @Override
+    public void setContentLengthLong(long length) {
+        synchronized (lock) {
+            if (!fenced) {
+                super.setContentLengthLong(length);
+            }
+        }
+    }
+
+    @Override
+    public void setLocale(Locale locale) {
+        synchronized (lock) {
+            if (!fenced) {
+                super.setLocale(locale);
+            }
+        }
+    }
+
+    @Override
+    public void setBufferSize(int size) {
+        synchronized (lock) {
+            if (!fenced) {
+                super.setBufferSize(size);
+            }
+        }
+    }
+
+    @Override
+    public void flushBuffer() throws IOException {
+        beginWrite();
+
+        try {
+            super.flushBuffer();
+        } finally {
+            endWrite();
+        }
+
+        checkNotFenced();
+    }
+
+    @Override
+    public void reset() {
+        synchronized (lock) {
+            if (!fenced) {
+                super.reset();
+            }
+        }
+    }
+
+    @Override
+    public void resetBuffer() {
+        synchronized (lock) {
+            if (!fenced) {
+                super.resetBuffer();
+            }
+        }
+    }
+
+    private void checkNotFenced() throws IOException {
+        if (fenced) {
+            throw new IOException("The request has timed out.");
+        }
+    }
+
+    /**
+     * Marks a write in progress, failing if the response is fenced. The 
+     * write is counted before the fence is checked, so either the write sees
+     * the fence or the fence sees the write.
+     *
+     * @throws IOException if the response is fenced.
+     */
+    private void beginWrite() throws IOException {
+        activeWrites.incrementAndGet();
+
+        if (fenced) {
+            activeWrites.decrementAndGet();
+            throw new IOException("The request has timed out.");
+        }
+    }
+
+    private void endWrite() {
+        activeWrites.decrementAndGet();
+    }
+
+    /**
+     * Passes the bytes on until the response is fenced.
+     */
+    private final class FencedOutputStream extends ServletOutputStream {
+
+        private final ServletOutputStream out;
+
+        FencedOutputStream(ServletOutputStream out) {
+            this.out = out;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            beginWrite();
+
+            try {
+                out.write(b);
+            } finally {
+                endWrite();
+            }
+
+            checkNotFenced();
+        }
+
+        @Override
+        public void write(byte[] bytes, int offset, int length)
+                throws IOException {
+            beginWrite();
+
+            try {
+                out.write(bytes, offset, length);
+            } finally {
+                endWrite();
+            }
+
+            checkNotFenced();
+        }
+
+        @Override
+        public void flush() throws IOException {
+            beginWrite();
+
+            try {
+                out.flush();
+            } finally {
+                endWrite();
+            }
+
+            checkNotFenced();
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                beginWrite();
+            } catch (IOException ex) {
+                return;
+            }
+
+            try {
+                out.close();
+            } finally {
+                endWrite();
+            }
+        }
+
+        @Override
+        public boolean isReady() {
+            return fenced || out.isReady();
+        }
+
+        @Override
+        public void setWriteListener(WriteListener listener) {
+            out.setWriteListener(listener);
+        }
+    }
+
+    /**
+     * Passes the characters on until the response is fenced.
+     */
+    private final class FencedWriter extends Writer {
+
+        private final Writer out;
+
+        FencedWriter(Writer out) {
+            this.out = out;
+        }
+
+        @Override
+        public void write(char[] chars, int offset, int length)
+                throws IOException {
+            beginWrite();
+
+            try {
+                out.write(chars, offset, length);
+            } finally {
+                endWrite();
+            }
+
+            checkNotFenced();
+        }
+
+        @Override
+        public void flush() throws IOException {
+            beginWrite();
+
+            try {
+                out.flush();
+            } finally {
+                endWrite();
+            }
+
+            checkNotFenced();
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                beginWrite();
+            } catch (IOException ex) {
+                return;
+            }
+
+            try {
+                out.close();
+            } finally {
+                endWrite();
+            }
+        }
+    }
+}
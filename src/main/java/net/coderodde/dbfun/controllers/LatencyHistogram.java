@@ -0,0 +1,135 @@
+package net.coderodde.dbfun.controllers;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * This class implements a concurrent latency histogram with logarithmic
+ * buckets in the spirit of HdrHistogram: each power of two is split into
+ * eight linear sub-buckets, so any recorded value is reproduced within 12.5%.
+ * Recording a value allocates nothing.
+ *
+ * @author Rodion "rodde" Efremov
+ * @version 1.7 (Oct 18, 2026)
+ */
+public final class LatencyHistogram {
+
+    /**
+     * The number of bits used for the linear sub-buckets.
+     */
+    private static final int SUB_BUCKET_BITS = 3;
+
+    /**
+     * The number of linear sub-buckets per power of two.
+     */
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+
+    /**
+     * The exponent of the largest power of two tracked, about 18 minutes in
+     * nanoseconds. Larger values end up in the last bucket.
+     */
+    private static final int MAX_EXPONENT = 40;
+
+    /**
+     * The number of buckets.
+     */
+    private static final int BUCKETS =
+            (MAX_EXPONENT - SUB_BUCKET_BITS + 2) * SUB_BUCKETS;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final AtomicLong count = new AtomicLong();
+    private final AtomicLong sum = new AtomicLong();
+    private final AtomicLong max = new AtomicLong();
+
+    /**
+     * Records a value.
+     *
+     * @param value the value to record, typically in nanoseconds.
+     */
+    public void record(long value) {
+        if (value < 0L) {
+            value = 0L;
+        }
+
+        counts.incrementAndGet(indexOf(value));
+        count.incrementAndGet();
+        sum.addAndGet(value);
+
+        long currentMax = max.get();
+
+        while (value > currentMax && !max.compareAndSet(currentMax, value)) {
+            currentMax = max.get();
+        }
+    }
+
+    /**
+     * @return the number of recorded values.
+     */
+    public long getCount() {
+        return count.get();
+    }
+
+    /**
+     * @return the sum of the recorded values.
+     */
+    public long getSum() {
+        return sum.get();
+    }
+
+    /**
+     * @return the largest recorded value.
+     */
+    public long getMax() {
+        return max.get();
+    }
+
+    /**
+     * Returns an upper bound of the given percentile of the recorded values.
+     *
+     * @param quantile the quantile between 0 and 1.
+     * @return the value at the quantile or 0 if nothing is recorded.
+     */
+    public long getValueAtQuantile(double quantile) {
+        long total = count.get();
+
+        if (total == 0L) {
+            return 0L;
+        }
+
+        long target = Math.max(1L, (long) Math.ceil(quantile * total));
+        long cumulative = 0L;
+
+        for (int index = 0; index < BUCKETS; ++index) {
+            cumulative += counts.get(index);
+
+            if (cumulative >= target) {
+                return Math.min(upperBoundOf(index), max.get());
+            }
+        }
+
+        return max.get();
+    }
+
+    private static int indexOf(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int subBucket = (int)(value >>> (exponent - SUB_BUCKET_BITS)) &
+                        (SUB_BUCKETS - 1);
+        int index = (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + subBucket;
+        return Math.min(index, BUCKETS - 1);
+    }
+
+    private static long upperBoundOf(int index) {
+        if (index < SUB_BUCKETS) {
+            return index;
+        }
+
+        int exponent = index / SUB_BUCKETS + SUB_BUCKET_BITS - 1;
+        int subBucket = index % SUB_BUCKETS;
+        return ((long)(SUB_BUCKETS + subBucket + 1) <<
+                (exponent - SUB_BUCKET_BITS)) - 1L;
+    }
+}
@@ -0,0 +1,494 @@
+package net.coderodde.dbfun.controllers;
+
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * This class holds the metrics of the data access operations and the servlets
+ * and renders them, together with the statistics of the connection pool, the
+ * person cache, the write-behind queue, the database executor, the search
+ * index, the snapshot, the replicas, the shards, the coalesced reads, the
+ * live person feed and the person statistics, in the Prometheus text
+ * exposition format.
+ *
+ * @author Rodion "rodde" Efremov
+ * @version 1.7 (Oct 18, 2026)
+ */
+final class Metrics {
+
+    /**
+     * The quantiles reported for each latency histogram.
+     */
+    private static final double[] QUANTILES = { 0.5, 0.9, 0.99, 0.999 };
+
+    /**
+     * The number of nanoseconds in a second.
+     */
+    private static final double NANOS_PER_SECOND = 1e9;
+
+    private static final List<OperationMetrics> DAO_OPERATIONS =
+            new ArrayList<>();
+
+    private static final List<OperationMetrics> SERVLETS = new ArrayList<>();
+
+    static final OperationMetrics ADD_PERSON = dao("addPerson");
+    static final OperationMetrics ADD_PERSONS = dao("addPersons");
+    static final OperationMetrics CREATE_DATABASE = dao("createDatabase");
+    static final OperationMetrics GET_ALL_USERS = dao("getAllUsers");
+    static final OperationMetrics STREAM_ALL_USERS = dao("streamAllUsers");
+    static final OperationMetrics GET_USERS_AFTER = dao("getUsersAfter");
+    static final OperationMetrics GET_USERS_BEFORE = dao("getUsersBefore");
+    static final OperationMetrics GET_USER_BY_ID = dao("getUserById");
+    static final OperationMetrics GET_USERS_BY_IDS = dao("getUsersByIds");
+    static final OperationMetrics GET_USER_BY_EMAIL = dao("getUserByEmail");
+    static final OperationMetrics GET_NUMBER_OF_USERS =
+            dao("getNumberOfUsers");
+    static final OperationMetrics SCAN_USERS_IN_RANGE =
+            dao("scanUsersInRange");
+    static final OperationMetrics GET_ID_RANGE = dao("getIdRange");
+    static final OperationMetrics COUNT_USERS_BY_DOMAIN =
+            dao("countUsersByDomain");
+    static final OperationMetrics COUNT_USERS_BY_DAY = dao("countUsersByDay");
+
+    static final OperationMetrics SHOW_PERSON_SERVLET =
+            servlet("ShowPersonController");
+    static final OperationMetrics ADD_PERSON_SERVLET =
+            servlet("AddPersonController");
+    static final OperationMetrics BULK_ADD_PERSON_SERVLET =
+            servlet("BulkAddPersonController");
+    static final OperationMetrics CREATE_DATABASE_SERVLET =
+            servlet("CreateDatabaseController");
+    static final OperationMetrics SEARCH_SERVLET = 
+            servlet("SearchController");
+    static final OperationMetrics EXPORT_SERVLET =
+            servlet("ExportController");
+    static final OperationMetrics STATS_SERVLET =
+            servlet("StatsController");
+
+    private Metrics() {}
+
+    private static OperationMetrics dao(String name) {
+        OperationMetrics metrics = new OperationMetrics(name);
+        DAO_OPERATIONS.add(metrics);
+        return metrics;
+    }
+
+    private static OperationMetrics servlet(String name) {
+        OperationMetrics metrics = new OperationMetrics(name);
+        SERVLETS.add(metrics);
+        return metrics;
+    }
+
+    /**
+     * Writes all the metrics in the Prometheus text format.
+     *
+     * @param out the writer to write to.
+     */
+    static void write(PrintWriter out) {
+        writeDataAccessMetrics(out);
+        writeServletMetrics(out);
+        writeConnectionPoolMetrics(out);
+        writePersonCacheMetrics(out);
+        writeWriteQueueMetrics(out);
+        writeExecutorMetrics(out);
+        writeSearchIndexMetrics(out);
+        writeSnapshotMetrics(out);
+        writeReplicaMetrics(out);
+        writeShardMetrics(out);
+        writeSingleFlightMetrics(out);
+        writePersonFeedMetrics(out);
+        writeStatisticsMetrics(out);
+    }
+
+    private static void writeDataAccessMetrics(PrintWriter out) {
+        header(out, "dbfun_dao_seconds", "summary",
+               "Latency of the data access operations by phase.");
+
+        for (OperationMetrics metrics : DAO_OPERATIONS) {
+            String labels = "operation=\"" + metrics.getName() + "\"";
+            summary(out, "dbfun_dao_seconds", labels, "total",
+                    metrics.getTotal());
+            summary(out, "dbfun_dao_seconds", labels, "connect",
+                    metrics.getConnect());
+            summary(out, "dbfun_dao_seconds", labels, "execute",
+                    metrics.getExecute());
+            summary(out, "dbfun_dao_seconds", labels, "map",
+                    metrics.getMap());
+        }
+
+        header(out, "dbfun_dao_rows_total", "counter",
+               "Rows processed by the data access operations.");
+
+        for (OperationMetrics metrics : DAO_OPERATIONS) {
+            sample(out, "dbfun_dao_rows_total",
+                   "operation=\"" + metrics.getName() + "\"",
+                   metrics.getRows());
+        }
+
+        header(out, "dbfun_dao_errors_total", "counter",
+               "Failures of the data access operations.");
+
+        for (OperationMetrics metrics : DAO_OPERATIONS) {
+            sample(out, "dbfun_dao_errors_total",
+                   "operation=\"" + metrics.getName() + "\"",
+                   metrics.getErrors());
+        }
+    }
+
+    private static void writeServletMetrics(PrintWriter out) {
+        header(out, "dbfun_http_request_seconds", "summary",
+               "Latency of the requests by servlet and phase.");
+
+        for (OperationMetrics metrics : SERVLETS) {
+            String labels = "servlet=\"" + metrics.getName() + "\"";
+            summary(out, "dbfun_http_request_seconds", labels, "total",
+                    metrics.getTotal());
+            summary(out, "dbfun_http_request_seconds", labels, "serialize",
+                    metrics.getSerialize());
+        }
+
+        header(out, "dbfun_http_rows_total", "counter",
+               "Rows sent by the servlets.");
+
+        for (OperationMetrics metrics : SERVLETS) {
+            sample(out, "dbfun_http_rows_total",
+                   "servlet=\"" + metrics.getName() + "\"",
+                   metrics.getRows());
+        }
+
+        header(out, "dbfun_http_errors_total", "counter",
+               "Failed requests by servlet.");
+
+        for (OperationMetrics metrics : SERVLETS) {
+            sample(out, "dbfun_http_errors_total",
+                   "servlet=\"" + metrics.getName() + "\"",
+                   metrics.getErrors());
+        }
+    }
+
+    private static void writeConnectionPoolMetrics(PrintWriter out) {
+        ConnectionPool.Statistics statistics =
+                DataAccessObject.instance().getConnectionPoolStatistics();
+
+        if (statistics == null) {
+            return;
+        }
+
+        gauge(out, "dbfun_pool_active_connections",
+              "Borrowed connections.", statistics.getActive());
+        gauge(out, "dbfun_pool_idle_connections",
+              "Idle connections.", statistics.getIdle());
+        gauge(out, "dbfun_pool_waiters",
+              "Threads waiting for a connection.", statistics.getWaiters());
+        counter(out, "dbfun_pool_borrows_total",
+                "Connections borrowed.", statistics.getBorrowCount());
+        counter(out, "dbfun_pool_borrow_wait_seconds_total",
+                "Time spent waiting for connections.",
+                statistics.getTotalBorrowWaitNanos() / NANOS_PER_SECOND);
+        counter(out, "dbfun_pool_timeouts_total",
+                "Borrows that timed out.", statistics.getTimeoutCount());
+        counter(out, "dbfun_pool_validation_failures_total",
+                "Idle connections that failed the validation.",
+                statistics.getValidationFailureCount());
+        counter(out, "dbfun_pool_connections_created_total",
+                "Physical connections opened.", statistics.getCreatedCount());
+    }
+
+    private static void writePersonCacheMetrics(PrintWriter out) {
+        PersonCache.Statistics statistics =
+                DataAccessObject.instance().getPersonCacheStatistics();
+
+        gauge(out, "dbfun_cache_size",
+              "Entries in the person cache.", statistics.getSize());
+        counter(out, "dbfun_cache_hits_total",
+                "Lookups answered with a cached person.",
+                statistics.getHitCount());
+        counter(out, "dbfun_cache_negative_hits_total",
+                "Lookups answered with a cached absence.",
+                statistics.getNegativeHitCount());
+        counter(out, "dbfun_cache_misses_total",
+                "Lookups that went to the database.",
+                statistics.getMissCount());
+        counter(out, "dbfun_cache_evictions_total",
+                "Entries evicted due to the size bound.",
+                statistics.getEvictionCount());
+    }
+
+    private static void writeWriteQueueMetrics(PrintWriter out) {
+        PersonWriteQueue.Statistics statistics =
+                AddPersonController.getWriteQueueStatistics();
+
+        if (statistics == null) {
+            return;
+        }
+
+        gauge(out, "dbfun_write_queue_depth",
+              "Persons waiting to be written.", statistics.getDepth());
+        counter(out, "dbfun_write_queue_rejected_total",
+                "Persons rejected due to a full queue.",
+                statistics.getRejectedCount());
+        counter(out, "dbfun_write_queue_commits_total",
+                "Groups committed.", statistics.getCommittedGroupCount());
+        counter(out, "dbfun_write_queue_persons_total",
+                "Persons written.", statistics.getCommittedPersonCount());
+        counter(out, "dbfun_write_queue_failures_total",
+                "Persons that could not be written.",
+                statistics.getFailedPersonCount());
+        gauge(out, "dbfun_write_queue_last_commit_size",
+              "Size of the last committed group.",
+              statistics.getLastGroupSize());
+    }
+
+    private static void writeExecutorMetrics(PrintWriter out) {
+        DatabaseExecutor executor = DatabaseExecutor.instance();
+        gauge(out, "dbfun_executor_in_flight",
+              "Requests running or waiting on the database executor.",
+              executor.getInFlightCount());
+        counter(out, "dbfun_executor_rejected_total",
+                "Requests rejected with 503 due to saturation.",
+                executor.getRejectedCount());
+        counter(out, "dbfun_executor_timeouts_total",
+                "Requests that timed out.", executor.getTimeoutCount());
+    }
+
+    private static void writeSearchIndexMetrics(PrintWriter out) {
+        if (!PersonSearchIndex.ENABLED) {
+            return;
+        }
+
+        PersonSearchIndex index = PersonSearchIndex.instance();
+        gauge(out, "dbfun_search_index_ready",
+              "Whether the search index is loaded.", index.isReady() ? 1 : 0);
+        gauge(out, "dbfun_search_index_entries",
+              "Entries in the search index, two per person.",
+              index.getEntryCount());
+        gauge(out, "dbfun_search_index_footprint_bytes",
+              "Bytes taken by the arrays of the search index.",
+              index.getFootprintBytes());
+    }
+
+    private static void writeSnapshotMetrics(PrintWriter out) {
+        if (!PersonSnapshot.ENABLED) {
+            return;
+        }
+
+        PersonSnapshot snapshot = PersonSnapshot.instance();
+        gauge(out, "dbfun_snapshot_ready",
+              "Whether the snapshot is loaded.", snapshot.isReady() ? 1 : 0);
+        gauge(out, "dbfun_snapshot_rows",
+              "Rows in the snapshot.", snapshot.size());
+        gauge(out, "dbfun_snapshot_footprint_bytes",
+              "Bytes taken by the arrays of the snapshot.",
+              snapshot.getFootprintBytes());
+        gauge(out, "dbfun_snapshot_staleness_seconds",
+              "Seconds since the start of the last refresh of the snapshot.",
+              snapshot.getStalenessMillis() / 1000.0);
+        counter(out, "dbfun_snapshot_reads_total",
+                "Reads served from the snapshot.", snapshot.getReadCount());
+    }
+
+    private static void writeReplicaMetrics(PrintWriter out) {
+        ReplicaRouter router = DataAccessObject.instance().getReplicaRouter();
+
+        if (router == null) {
+            return;
+        }
+
+        header(out, "dbfun_replica_healthy", "gauge",
+               "Whether the replica is in the rotation.");
+
+        for (ReplicaRouter.Replica replica : router.getReplicas()) {
+            sample(out, "dbfun_replica_healthy",
+                   "replica=\"" + replica.getName() + "\"",
+                   replica.isHealthy() ? 1 : 0);
+        }
+
+        header(out, "dbfun_replica_reads_total", "counter",
+               "Reads routed to the replica.");
+
+        for (ReplicaRouter.Replica replica : router.getReplicas()) {
+            sample(out, "dbfun_replica_reads_total",
+                   "replica=\"" + replica.getName() + "\"",
+                   replica.getReadCount());
+        }
+
+        header(out, "dbfun_replica_failures_total", "counter",
+               "Failed borrows and health checks of the replica.");
+
+        for (ReplicaRouter.Replica replica : router.getReplicas()) {
+            sample(out, "dbfun_replica_failures_total",
+                   "replica=\"" + replica.getName() + "\"",
+                   replica.getFailureCount());
+        }
+
+        counter(out, "dbfun_replica_primary_reads_total",
+                "Reads sent to the primary to show the client its own writes.",
+                router.getPrimaryReadCount());
+        counter(out, "dbfun_replica_fallback_reads_total",
+                "Reads sent to the primary since no replica was healthy.",
+                router.getFallbackReadCount());
+    }
+
+    private static void writeShardMetrics(PrintWriter out) {
+        Shards shards = DataAccessObject.instance().getShardsIfCreated();
+
+        if (shards == null) {
+            return;
+        }
+
+        header(out, "dbfun_shard_active_connections", "gauge",
+               "Borrowed connections of the shard.");
+
+        for (int shard = 0; shard < shards.count(); ++shard) {
+            sample(out, "dbfun_shard_active_connections",
+                   "shard=\"" + shard + "\"",
+                   shards.getPool(shard).getStatistics().getActive());
+        }
+
+        header(out, "dbfun_shard_waiters", "gauge",
+               "Threads waiting for a connection to the shard.");
+
+        for (int shard = 0; shard < shards.count(); ++shard) {
+            sample(out, "dbfun_shard_waiters",
+                   "shard=\"" + shard + "\"",
+                   shards.getPool(shard).getStatistics().getWaiters());
+        }
+
+        header(out, "dbfun_shard_borrows_total", "counter",
+               "Connections borrowed from the shard.");
+
+        for (int shard = 0; shard < shards.count(); ++shard) {
+            sample(out, "dbfun_shard_borrows_total",
+                   "shard=\"" + shard + "\"",
+                   shards.getPool(shard).getStatistics().getBorrowCount());
+        }
+    }
+
+    private static void writeSingleFlightMetrics(PrintWriter out) {
+        List<SingleFlight<?, ?>> flights = new ArrayList<>(
+                DataAccessObject.instance().getSingleFlights());
+        flights.add(ShowPersonController.getListingFlight());
+        header(out, "dbfun_single_flight_calls_total", "counter",
+               "Coalesced reads by outcome; shared ones saved a query.");
+
+        for (SingleFlight<?, ?> flight : flights) {
+            String labels = "flight=\"" + flight.getName() + "\",outcome=";
+            sample(out, "dbfun_single_flight_calls_total",
+                   labels + "\"leader\"", flight.getLeaderCount());
+            sample(out, "dbfun_single_flight_calls_total",
+                   labels + "\"shared\"", flight.getSharedCount());
+            sample(out, "dbfun_single_flight_calls_total",
+                   labels + "\"timeout\"", flight.getTimeoutCount());
+            sample(out, "dbfun_single_flight_calls_total",
+                   labels + "\"bypass\"", flight.getBypassCount());
+        }
+    }
+
+    private static void writePersonFeedMetrics(PrintWriter out) {
+        if (!PersonFeed.isStarted()) {
+            return;
+        }
+
+        PersonFeed feed = PersonFeed.instance();
+        gauge(out, "dbfun_feed_subscribers",
+              "Clients connected to /show/stream.",
+              feed.getSubscriberCount());
+        counter(out, "dbfun_feed_events_total",
+                "Saved persons fanned out to the clients.",
+                feed.getEventCount());
+        counter(out, "dbfun_feed_overflows_total",
+                "Clients disconnected since their queue was full.",
+                feed.getOverflowCount());
+    }
+
+    private static void writeStatisticsMetrics(PrintWriter out) {
+        if (!PersonStatistics.ENABLED) {
+            return;
+        }
+
+        PersonStatistics statistics = PersonStatistics.instance();
+        gauge(out, "dbfun_stats_ready",
+              "1 if the person statistics are loaded, 0 otherwise.",
+              statistics.isReady() ? 1 : 0);
+        counter(out, "dbfun_stats_reconciliations_total",
+                "Times the person statistics were loaded from the database.",
+                statistics.getReconcileCount());
+        gauge(out, "dbfun_stats_drift",
+              "Persons counted incrementally minus those loaded at the " +
+              "last reconciliation.",
+              statistics.getLastDrift());
+    }
+
+    private static void header(PrintWriter out,
+                               String name,
+                               String type,
+                               String help) {
+        out.print("# HELP ");
+        out.print(name);
+        out.print(' ');
+        out.println(help);
+        out.print("# TYPE ");
+        out.print(name);
+        out.print(' ');
+        out.println(type);
+    }
+
+    private static void summary(PrintWriter out,
+                                String name,
+                                String labels,
+                                String phase,
+                                LatencyHistogram histogram) {
+        if (histogram.getCount() == 0L) {
+            return;
+        }
+
+        labels += ",phase=\"" + phase + "\"";
+
+        for (double quantile : QUANTILES) {
+            sample(out, name, labels + ",quantile=\"" + quantile + "\"",
+                   histogram.getValueAtQuantile(quantile) / NANOS_PER_SECOND);
+        }
+
+        sample(out, name + "_sum", labels,
+               histogram.getSum() / NANOS_PER_SECOND);
+        sample(out, name + "_count", labels, histogram.getCount());
+    }
+
+    private static void gauge(PrintWriter out,
+                              String name,
+                              String help,
+                              double value) {
+        header(out, name, "gauge", help);
+        sample(out, name, null, value);
+    }
+
+    private static void counter(PrintWriter out,
+                                String name,
+                                String help,
+                                double value) {
+        header(out, name, "counter", help);
+        sample(out, name, null, value);
+    }
+
+    private static void sample(PrintWriter out,
+                               String name,
+                               String labels,
+                               double value) {
+        out.print(name);
+
+        if (labels != null) {
+            out.print('{');
+            out.print(labels);
+            out.print('}');
+        }
+
+        out.print(' ');
+
+        if (value == Math.rint(value) && Math.abs(value) < 1e15) {
+            out.println((long) value);
+        } else {
+            out.println(value);
+        }
+    }
+}
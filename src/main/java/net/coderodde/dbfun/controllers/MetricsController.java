@@ -0,0 +1,48 @@
+package net.coderodde.dbfun.controllers;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import javax.servlet.ServletException;
+import javax.servlet.annotation.WebServlet;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * This controller exposes the latency histograms, counters and gauges of the
+ * application in the Prometheus text format.
+ * 
+ * @author Rodion "rodde" Efremov
+ * @version 1.7 (Oct 18, 2026)
+ */
+@WebServlet(name = "MetricsController", urlPatterns = {"/metrics"})
+public class MetricsController extends HttpServlet {
+
+    /**
+     * Handles the HTTP <code>GET</code> method.
+     *
+     * @param request  the servlet request.
+     * @param response the servlet response.
+     * @throws ServletException if a servlet-specific error occurs.
+     * @throws IOException if an I/O error occurs.
+     */
+    @Override
+    protected void doGet(HttpServletRequest request, HttpServletResponse response)
+            throws ServletException, IOException {
+        response.setContentType("text/plain;version=0.0.4;charset=UTF-8");
+
+        try (PrintWriter out = response.getWriter()) {
+            Metrics.write(out);
+        }
+    }
+
+    /**
+     * Returns a short description of the servlet.
+     *
+     * @return a String containing servlet description
+     */
+    @Override
+    public String getServletInfo() {
+        return "Exposes the metrics in the Prometheus text format.";
+    }
+}
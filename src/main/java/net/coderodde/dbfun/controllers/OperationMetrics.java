@@ -0,0 +1,174 @@
+package net.coderodde.dbfun.controllers;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * This class holds the metrics of a single operation: the total latency, the
+ * latencies of its phases, the number of rows it has processed and the number
+ * of times it has failed. The phase methods take the time stamp at which the
+ * phase started and return the time stamp at which it ended, so that an
+ * operation is timed with plain {@code long} locals:
+ *
+ * <pre>
+ * long start = System.nanoTime();
+ * long time = metrics.connected(start);
+ * time = metrics.executed(time);
+ * metrics.mapped(time, rows);
+ * metrics.finished(start);
+ * </pre>
+ *
+ * @author Rodion "rodde" Efremov
+ * @version 1.7 (Oct 18, 2026)
+ */
+public final class OperationMetrics {
+
+    /**
+     * Whether the metrics are recorded at all.
+     */
+    static final boolean ENABLED =
+            Configuration.getBoolean("DBFUN_METRICS", true);
+
+    private final String name;
+    private final LatencyHistogram total = new LatencyHistogram();
+    private final LatencyHistogram connect = new LatencyHistogram();
+    private final LatencyHistogram execute = new LatencyHistogram();
+    private final LatencyHistogram map = new LatencyHistogram();
+    private final LatencyHistogram serialize = new LatencyHistogram();
+    private final AtomicLong rows = new AtomicLong();
+    private final AtomicLong errors = new AtomicLong();
+
+    OperationMetrics(String name) {
+        this.name = name;
+    }
+
+    /**
+     * @return the name of the operation.
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Records the time spent obtaining a connection.
+     *
+     * @param start the time the phase started.
+     * @return the current time.
+     */
+    public long connected(long start) {
+        return record(connect, start);
+    }
+
+    /**
+     * Records the time spent executing a statement.
+     *
+     * @param start the time the phase started.
+     * @return the current time.
+     */
+    public long executed(long start) {
+        return record(execute, start);
+    }
+
+    /**
+     * Records the time spent mapping rows to objects.
+     *
+     * @param start the time the phase started.
+     * @param count the number of rows mapped.
+     * @return the current time.
+     */
+    public long mapped(long start, long count) {
+        addRows(count);
+        return record(map, start);
+    }
+
+    /**
+     * Records the time spent mapping rows to objects when it is known
+     * directly.
+     *
+     * @param nanos the time spent.
+     * @param count the number of rows mapped.
+     */
+    public void mappedNanos(long nanos, long count) {
+        if (ENABLED) {
+            addRows(count);
+            map.record(nanos);
+        }
+    }
+
+    /**
+     * Records the time spent serializing the response.
+     *
+     * @param nanos the time spent.
+     */
+    public void serializedNanos(long nanos) {
+        if (ENABLED) {
+            serialize.record(nanos);
+        }
+    }
+
+    /**
+     * Records the total time of the operation.
+     *
+     * @param start the time the operation started.
+     */
+    public void finished(long start) {
+        record(total, start);
+    }
+
+    /**
+     * Records a failure of the operation.
+     */
+    public void failed() {
+        if (ENABLED) {
+            errors.incrementAndGet();
+        }
+    }
+
+    /**
+     * Adds to the number of processed rows.
+     *
+     * @param count the number of rows.
+     */
+    public void addRows(long count) {
+        if (ENABLED && count != 0L) {
+            rows.addAndGet(count);
+        }
+    }
+
+    LatencyHistogram getTotal() {
+        return total;
+    }
+
+    LatencyHistogram getConnect() {
+        return connect;
+    }
+
+    LatencyHistogram getExecute() {
+        return execute;
+    }
+
+    LatencyHistogram getMap() {
+        return map;
+    }
+
+    LatencyHistogram getSerialize() {
+        return serialize;
+    }
+
+    long getRows() {
+        return rows.get();
+    }
+
+    long getErrors() {
+        return errors.get();
+    }
+
+    private static long record(LatencyHistogram histogram, long start) {
+        if (!ENABLED) {
+            return start;
+        }
+
+        long now = System.nanoTime();
+        histogram.record(now - start);
+        return now;
+    }
+}
@@ -2,7 +2,6 @@ package net.coderodde.dbfun.controllers;
 
 import java.sql.Date;
 import java.util.Objects;
-import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 /**
@@ -17,7 +16,9 @@ import java.util.regex.Pattern;
 public final class Person {
     
     /**
-     * Used for validating the email addresses.
+     * Describes the valid email addresses. The validation itself is done by 
+     * {@link #isValidEmailAddress(String)}, which accepts the same addresses 
+     * without running the regular expression engine.
      */
     public static final Pattern VALID_EMAIL_ADDRESS_REGEX = 
                         Pattern.compile(
@@ -56,8 +57,10 @@ public final class Person {
 
     public void setFirstName(String firstName) {
         Objects.requireNonNull(firstName, "First name is null.");
+        // trim() allocates only if there is something to trim.
+        firstName = firstName.trim();
         
-        if (firstName.trim().isEmpty()) {
+        if (firstName.isEmpty()) {
             throw new IllegalArgumentException("First name is null");
         }
         
@@ -66,8 +69,9 @@ public final class Person {
 
     public void setLastName(String lastName) {
         Objects.requireNonNull(lastName, "Last name is null.");
+        lastName = lastName.trim();
         
-        if (lastName.trim().isEmpty()) {
+        if (lastName.isEmpty()) {
             throw new IllegalArgumentException("Last name is null");
         }
         
@@ -76,9 +80,11 @@ public final class Person {
 
     public void setEmail(String email) {
         Objects.requireNonNull(email, "Email address is null.");
+        email = email.trim();
         
-        if (!validate(email)) {
-            throw new IllegalArgumentException();
+        if (!isValidEmailAddress(email)) {
+            throw new IllegalArgumentException(
+                    "Invalid email address: " + email);
         }
         
         this.email = email;
@@ -96,13 +102,99 @@ public final class Person {
     }
     
     /**
-     * Checks the email address.
+     * Creates a person from a database row without validating the fields. Only
+     * for the rows read by {@link DataAccessObject}, which were validated when
+     * they were inserted.
+     * 
+     * @param id        the ID of the person.
+     * @param firstName the first name.
+     * @param lastName  the last name.
+     * @param email     the email address.
+     * @param created   the creation date.
+     * @return the person.
+     */
+    static Person fromTrustedRow(int id, 
+                                 String firstName, 
+                                 String lastName, 
+                                 String email, 
+                                 Date created) {
+        Person person = new Person();
+        person.id = id;
+        person.firstName = firstName;
+        person.lastName = lastName;
+        person.email = email;
+        person.created = created;
+        return person;
+    }
+    
+    /**
+     * Checks the email address in a single pass. Accepts exactly the addresses
+     * matched by {@link #VALID_EMAIL_ADDRESS_REGEX}: a non-empty local part, 
+     * {@code @}, a non-empty domain and a top-level domain of two to six 
+     * letters.
      * 
      * @param email the email address to validate.
      * @return {@code true} if {@code email} is a valid email address.
      */
-    private static boolean validate(String email ) {
-        Matcher matcher = VALID_EMAIL_ADDRESS_REGEX .matcher(email );
-        return matcher.find();
+    public static boolean isValidEmailAddress(String email) {
+        int length = email.length();
+        int atIndex = -1;
+        int lastDotIndex = -1;
+        boolean lettersOnlySinceLastDot = false;
+        
+        for (int i = 0; i < length; ++i) {
+            char c = email.charAt(i);
+            
+            if (atIndex < 0) {
+                if (c == '@') {
+                    if (i == 0) {
+                        return false;
+                    }
+                    
+                    atIndex = i;
+                } else if (!isLocalPartCharacter(c)) {
+                    return false;
+                }
+            } else if (c == '.') {
+                lastDotIndex = i;
+                lettersOnlySinceLastDot = true;
+            } else if (isLetter(c)) {
+                // Still a possible top-level domain.
+            } else if (isDigit(c) || c == '-') {
+                lettersOnlySinceLastDot = false;
+            } else {
+                return false;
+            }
+        }
+        
+        int topLevelDomainLength = length - lastDotIndex - 1;
+        
+        return atIndex > 0 
+                && lastDotIndex > atIndex + 1
+                && lettersOnlySinceLastDot
+                && topLevelDomainLength >= 2 
+                && topLevelDomainLength <= 6;
+    }
+    
+    private static boolean isLocalPartCharacter(char c) {
+        switch (c) {
+            case '.':
+            case '_':
+            case '%':
+            case '+':
+            case '-':
+                return true;
+                
+            default:
+                return isLetter(c) || isDigit(c);
+        }
+    }
+    
+    private static boolean isLetter(char c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z');
+    }
+    
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
     }
 }
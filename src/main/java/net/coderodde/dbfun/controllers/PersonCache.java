@@ -0,0 +1,276 @@
+package net.coderodde.dbfun.controllers;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * This class implements a bounded, time-limited cache of persons keyed by
+ * their IDs. When full, the least recently used entry is evicted. The cache
+ * also remembers the IDs that are known to have no person (negative caching)
+ * for a shorter time, so that scans over non-existent IDs do not reach the
+ * database every time.
+ *
+ * <p>The cached persons are shared between the callers and must not be
+ * modified.
+ *
+ * @author Rodion "rodde" Efremov
+ * @version 1.7 (Oct 18, 2026)
+ */
+public final class PersonCache {
+
+    /**
+     * The maximum number of entries in the cache.
+     */
+    private final int maxSize;
+
+    /**
+     * The time an existing person stays in the cache.
+     */
+    private final long ttlNanos;
+
+    /**
+     * The time a missing person stays in the cache.
+     */
+    private final long negativeTtlNanos;
+
+    /**
+     * The entries in access order. Guarded by {@code this}.
+     */
+    private final LinkedHashMap<Integer, Entry> map;
+
+    /**
+     * Incremented on each invalidation. Used for discarding the loads that
+     * raced with an invalidation.
+     */
+    private long invalidationCount;
+
+    private long hitCount;
+    private long negativeHitCount;
+    private long missCount;
+    private long evictionCount;
+    private long expirationCount;
+
+    public PersonCache(int maxSize, long ttlMillis, long negativeTtlMillis) {
+        this.maxSize = Math.max(0, maxSize);
+        this.ttlNanos = TimeUnit.MILLISECONDS.toNanos(ttlMillis);
+        this.negativeTtlNanos = TimeUnit.MILLISECONDS.toNanos(negativeTtlMillis);
+        this.map = new LinkedHashMap<Integer, Entry>(16, 0.75f, true) {
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, Entry> e) {
+                if (size() > PersonCache.this.maxSize) {
+                    evictionCount++;
+                    return true;
+                }
+
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Looks up a person.
+     *
+     * @param id the ID of the person.
+     * @return {@code null} if the ID is not cached, otherwise the cache entry
+     *         whose person is {@code null} if there is no such person.
+     */
+    public synchronized Entry get(int id) {
+        Entry entry = map.get(id);
+
+        if (entry == null) {
+            missCount++;
+            return null;
+        }
+
+        if (entry.expiresAt - System.nanoTime() <= 0L) {
+            map.remove(id);
+            expirationCount++;
+            missCount++;
+            return null;
+        }
+
+        if (entry.person == null) {
+            negativeHitCount++;
+        } else {
+            hitCount++;
+        }
+
+        return entry;
+    }
+
+    /**
+     * Returns a stamp to be passed to {@link #put(int, Person, long)} after
+     * loading a person. Must be called before the load starts.
+     *
+     * @return the stamp.
+     */
+    public synchronized long getStamp() {
+        return invalidationCount;
+    }
+
+    /**
+     * Caches a loaded person unless an invalidation has happened since
+     * {@code stamp} was obtained.
+     *
+     * @param id     the ID of the person.
+     * @param person the person or {@code null} if there is no such person.
+     * @param stamp  the stamp obtained before loading.
+     */
+    public synchronized void put(int id, Person person, long stamp) {
+        if (maxSize == 0 || stamp != invalidationCount) {
+            return;
+        }
+
+        long ttl = person != null ? ttlNanos : negativeTtlNanos;
+
+        if (ttl > 0L) {
+            map.put(id, new Entry(person, System.nanoTime() + ttl));
+        }
+    }
+
+    /**
+     * Removes a person from the cache. Must be called whenever the person with
+     * the given ID is created, updated or deleted.
+     *
+     * @param id the ID of the person.
+     */
+    public synchronized void invalidate(int id) {
+        invalidationCount++;
+        map.remove(id);
+    }
+
+    /**
+     * Empties the cache.
+     */
+    public synchronized void invalidateAll() {
+        invalidationCount++;
+        map.clear();
+    }
+
+    /**
+     * Returns a snapshot of the statistics of this cache.
+     *
+     * @return the statistics.
+     */
+    public synchronized Statistics getStatistics() {
+        return new Statistics(map.size(),
+                              hitCount,
+                              negativeHitCount,
+                              missCount,
+                              evictionCount,
+                              expirationCount,
+                              invalidationCount);
+    }
+
+    /**
+     * This class holds a cached lookup result.
+     */
+    public static final class Entry {
+
+        private final Person person;
+        private final long expiresAt;
+
+        Entry(Person person, long expiresAt) {
+            this.person = person;
+            this.expiresAt = expiresAt;
+        }
+
+        /**
+         * @return the cached person or {@code null} if there is no such person.
+         */
+        public Person getPerson() {
+            return person;
+        }
+    }
+
+    /**
+     * This class holds a snapshot of the cache statistics.
+     */
+    public static final class Statistics {
+
+        private final int size;
+        private final long hitCount;
+        private final long negativeHitCount;
+        private final long missCount;
+        private final long evictionCount;
+        private final long expirationCount;
+        private final long invalidationCount;
+
+        Statistics(int size,
+                   long hitCount,
+                   long negativeHitCount,
+                   long missCount,
+                   long evictionCount,
+                   long expirationCount,
+                   long invalidationCount) {
+            this.size = size;
+            this.hitCount = hitCount;
+            this.negativeHitCount = negativeHitCount;
+            this.missCount = missCount;
+            this.evictionCount = evictionCount;
+            this.expirationCount = expirationCount;
+            this.invalidationCount = invalidationCount;
+        }
+
+        /**
+         * @return the number of cached entries.
+         */
+        public int getSize() {
+            return size;
+        }
+
+        /**
+         * @return the number of lookups answered with a cached person.
+         */
+        public long getHitCount() {
+            return hitCount;
+        }
+
+        /**
+         * @return the number of lookups answered with a cached absence.
+         */
+        public long getNegativeHitCount() {
+            return negativeHitCount;
+        }
+
+        /**
+         * @return the number of lookups that had to go to the database.
+         */
+        public long getMissCount() {
+            return missCount;
+        }
+
+        /**
+         * @return the number of entries evicted due to the size bound.
+         */
+        public long getEvictionCount() {
+            return evictionCount;
+        }
+
+        /**
+         * @return the number of entries dropped due to the time limit.
+         */
+        public long getExpirationCount() {
+            return expirationCount;
+        }
+
+        /**
+         * @return the number of invalidations.
+         */
+        public long getInvalidationCount() {
+            return invalidationCount;
+        }
+
+        @Override
+        public String toString() {
+            return "{size=" + size + ", hitCount=" + hitCount +
+                   ", negativeHitCount=" + negativeHitCount +
+                   ", missCount=" + missCount +
+                   ", evictionCount=" + evictionCount +
+                   ", expirationCount=" + expirationCount +
+                   ", invalidationCount=" + invalidationCount + "}";
+        }
+    }
+}
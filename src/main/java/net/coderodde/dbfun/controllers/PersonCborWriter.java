@@ -0,0 +1,185 @@
+package net.coderodde.dbfun.controllers;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Calendar;
+import java.util.Date;
+import java.util.GregorianCalendar;
+import java.util.TimeZone;
+
+/**
+ * This class writes persons in CBOR (RFC 7049) as they are streamed from the
+ * database. The output is an indefinite-length array holding one
+ * five-element array per person:
+ *
+ * <pre>
+ * [id, firstName, lastName, email, created]
+ * </pre>
+ *
+ * The ID is an unsigned integer, the names and the email address are text
+ * strings and the creation date is the number of days since 1970-01-01 tagged
+ * with 100 (RFC 8943), or {@code null}. Since the field names are not
+ * repeated, a person takes about half the bytes of its JSON form.
+ *
+ * @author Rodion "rodde" Efremov
+ * @version 1.7 (Oct 18, 2026)
+ */
+final class PersonCborWriter implements PersonHandler {
+
+    /**
+     * The media type of the CBOR responses.
+     */
+    static final String CONTENT_TYPE = "application/cbor";
+
+    private static final int MAJOR_UNSIGNED = 0;
+    private static final int MAJOR_NEGATIVE = 1;
+    private static final int MAJOR_TEXT = 3;
+    private static final int MAJOR_ARRAY = 4;
+    private static final int MAJOR_TAG = 6;
+
+    private static final int INDEFINITE_ARRAY = 0x9f;
+    private static final int BREAK = 0xff;
+    private static final int NULL = 0xf6;
+
+    /**
+     * The tag of the dates given as days since the epoch.
+     */
+    private static final int TAG_EPOCH_DAYS = 100;
+
+    private static final long MILLIS_PER_DAY = 24L * 60L * 60L * 1000L;
+
+    private final OutputStream out;
+    private final byte[] header = new byte[9];
+    private final Calendar localCalendar = Calendar.getInstance();
+    private final Calendar utcCalendar =
+            new GregorianCalendar(TimeZone.getTimeZone("UTC"));
+    private int count;
+    private long serializeNanos;
+
+    /**
+     * Constructs a writer. The stream should be buffered since the values
+     * are written a few bytes at a time.
+     *
+     * @param out the stream to write to.
+     */
+    PersonCborWriter(OutputStream out) {
+        this.out = out;
+    }
+
+    /**
+     * Starts the array of persons.
+     *
+     * @throws IOException if an I/O error occurs.
+     */
+    void begin() throws IOException {
+        out.write(INDEFINITE_ARRAY);
+    }
+
+    @Override
+    public void handle(Person person) throws IOException {
+        long start = System.nanoTime();
+        writeHeader(MAJOR_ARRAY, 5);
+        writeHeader(MAJOR_UNSIGNED, person.getId());
+        writeString(person.getFirstName());
+        writeString(person.getLastName());
+        writeString(person.getEmail());
+        writeDate(person.getCreated());
+        serializeNanos += System.nanoTime() - start;
+        count++;
+    }
+
+    /**
+     * Ends the array of persons and flushes the stream.
+     *
+     * @throws IOException if an I/O error occurs.
+     */
+    void end() throws IOException {
+        out.write(BREAK);
+        out.flush();
+    }
+
+    /**
+     * @return the number of persons written.
+     */
+    int getCount() {
+        return count;
+    }
+
+    /**
+     * @return the time spent encoding the persons.
+     */
+    long getSerializeNanos() {
+        return serializeNanos;
+    }
+
+    private void writeString(String string) throws IOException {
+        if (string == null) {
+            out.write(NULL);
+            return;
+        }
+
+        byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+        writeHeader(MAJOR_TEXT, bytes.length);
+        out.write(bytes);
+    }
+
+    private void writeDate(Date date) throws IOException {
+        if (date == null) {
+            out.write(NULL);
+            return;
+        }
+
+        // A java.sql.Date is midnight in the local time zone.
+        localCalendar.setTime(date);
+        utcCalendar.clear();
+        utcCalendar.set(localCalendar.get(Calendar.YEAR),
+                        localCalendar.get(Calendar.MONTH),
+                        localCalendar.get(Calendar.DAY_OF_MONTH));
+        // Exact, since the time is midnight in UTC.
+        long days = utcCalendar.getTimeInMillis() / MILLIS_PER_DAY;
+        writeHeader(MAJOR_TAG, TAG_EPOCH_DAYS);
+
+        if (days >= 0L) {
+            writeHeader(MAJOR_UNSIGNED, days);
+        } else {
+            writeHeader(MAJOR_NEGATIVE, -1L - days);
+        }
+    }
+
+    /**
+     * Writes the initial byte of a data item and its argument in the
+     * shortest form.
+     */
+    private void writeHeader(int majorType, long value) throws IOException {
+        int type = majorType << 5;
+
+        if (value < 24L) {
+            out.write(type | (int) value);
+            return;
+        }
+
+        int length;
+
+        if (value < 0x100L) {
+            header[0] = (byte)(type | 24);
+            length = 1;
+        } else if (value < 0x10000L) {
+            header[0] = (byte)(type | 25);
+            length = 2;
+        } else if (value < 0x100000000L) {
+            header[0] = (byte)(type | 26);
+            length = 4;
+        } else {
+            header[0] = (byte)(type | 27);
+            length = 8;
+        }
+
+        for (int i = length; i > 0; --i) {
+            header[i] = (byte) value;
+            value >>>= 8;
+        }
+
+        out.write(header, 0, length + 1);
+    }
+}
@@ -0,0 +1,533 @@
+package net.coderodde.dbfun.controllers;
+
+import com.google.gson.Gson;
+import java.io.BufferedOutputStream;
+import java.io.BufferedWriter;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.RandomAccessFile;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.text.SimpleDateFormat;
+import java.util.ArrayDeque;
+import java.util.Date;
+import java.util.Deque;
+import java.util.Locale;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * This class exports the person table as newline-delimited JSON or as CSV.
+ * The ID range is split into chunks of {@code DBFUN_EXPORT_CHUNK_SIZE} IDs,
+ * which are scanned concurrently by {@code DBFUN_EXPORT_THREADS} threads,
+ * each on a pooled connection of its own with a forward-only cursor. The
+ * chunks are encoded in memory and written in ID order, at most two per
+ * thread being held at a time, so the heap used does not grow with the
+ * table. All the exports together scan at most
+ * {@code DBFUN_EXPORT_MAX_CONNECTIONS} chunks at a time, by default a quarter
+ * of {@code DBFUN_POOL_MAX_TOTAL}, so that they leave most of the connection
+ * pool to the requests.
+ *
+ * <p>Since the rows are written in ID order, an interrupted export can be
+ * resumed after the last ID written. Run as a program, the exporter records
+ * the last chunk boundary and the file length next to the file after every
+ * chunk and resumes from there:
+ *
+ * <pre>
+ * java net.coderodde.dbfun.controllers.PersonExporter [--format ndjson|csv]
+ *                                                    FILE
+ * </pre>
+ *
+ * @author Rodion "rodde" Efremov
+ * @version 1.7 (Oct 18, 2026)
+ */
+public final class PersonExporter {
+
+    private static final Logger LOGGER =
+            Logger.getLogger(PersonExporter.class.getName());
+
+    /**
+     * The export formats.
+     */
+    public enum Format {
+
+        /**
+         * One JSON object per line, as listed by {@code /show}.
+         */
+        NDJSON("application/x-ndjson", "ndjson"),
+
+        /**
+         * Comma-separated values with a header line, the dates formatted
+         * like {@code 2017-08-11}.
+         */
+        CSV("text/csv", "csv");
+
+        private final String contentType;
+        private final String extension;
+
+        private Format(String contentType, String extension) {
+            this.contentType = contentType;
+            this.extension = extension;
+        }
+
+        /**
+         * @return the media type of the format.
+         */
+        public String getContentType() {
+            return contentType;
+        }
+
+        /**
+         * @return the file name extension of the format.
+         */
+        public String getExtension() {
+            return extension;
+        }
+
+        /**
+         * Parses a format name, ignoring the case.
+         *
+         * @param name the name or {@code null}.
+         * @return the format, {@link #NDJSON} if the name is {@code null}.
+         * @throws IllegalArgumentException if the name is unknown.
+         */
+        public static Format parse(String name) {
+            if (name == null) {
+                return NDJSON;
+            }
+
+            for (Format format : values()) {
+                if (format.extension.equalsIgnoreCase(name.trim())) {
+                    return format;
+                }
+            }
+
+            throw new IllegalArgumentException(
+                    "Unknown export format: " + name + ".");
+        }
+    }
+
+    /**
+     * This interface defines the API for being notified of the chunks
+     * written, for example to record where to resume.
+     */
+    public interface Checkpoint {
+
+        /**
+         * Called after a chunk has been written.
+         *
+         * @param lastId the largest ID the chunk covered; the export can be
+         *               resumed after it.
+         * @param rows   the number of rows written so far.
+         * @throws IOException if the checkpoint cannot be recorded.
+         */
+        void chunkWritten(int lastId, long rows) throws IOException;
+    }
+
+    /**
+     * The header line of the CSV format.
+     */
+    private static final String CSV_HEADER =
+            "id,first_name,last_name,email,created\n";
+
+    /**
+     * The time between two progress reports in the log.
+     */
+    private static final long REPORT_NANOS = 5000000000L;
+
+    /**
+     * Serializes the persons.
+     */
+    private static final Gson GSON = PersonTypeAdapter.newGson();
+
+    /**
+     * The maximum number of connections used by all the exports together.
+     */
+    private static final int MAX_CONNECTIONS = Math.max(
+            1,
+            Configuration.getInt(
+                    "DBFUN_EXPORT_MAX_CONNECTIONS",
+                    Configuration.getInt("DBFUN_POOL_MAX_TOTAL", 10) / 4));
+
+    /**
+     * Limits the chunks scanned at a time by all the exports together.
+     */
+    private static final Semaphore CONNECTIONS =
+            new Semaphore(MAX_CONNECTIONS);
+
+    private final Format format;
+    private final int chunkSize;
+    private final int threads;
+
+    /**
+     * Constructs an exporter configured with {@code DBFUN_EXPORT_CHUNK_SIZE}
+     * and {@code DBFUN_EXPORT_THREADS}.
+     *
+     * @param format the format to write.
+     */
+    public PersonExporter(Format format) {
+        this(format,
+             Configuration.getInt("DBFUN_EXPORT_CHUNK_SIZE", 10000),
+             Configuration.getInt("DBFUN_EXPORT_THREADS", 4));
+    }
+
+    /**
+     * Constructs an exporter.
+     *
+     * @param format    the format to write.
+     * @param chunkSize the number of IDs per chunk.
+     * @param threads   the number of chunks scanned concurrently, at most
+     *                  {@code DBFUN_EXPORT_MAX_CONNECTIONS}.
+     */
+    public PersonExporter(Format format, int chunkSize, int threads) {
+        this.format = format;
+        this.chunkSize = Math.max(1, chunkSize);
+        this.threads = Math.max(1, Math.min(threads, MAX_CONNECTIONS));
+    }
+
+    /**
+     * Writes the persons with IDs larger than {@code afterId} in ID order.
+     * The CSV header line is written only when {@code header} is
+     * {@code true}, so that a resumed export can be appended.
+     *
+     * @param afterId    the ID after which to start, 0 for all persons.
+     * @param header     whether to write the CSV header line.
+     * @param out        the stream to write to; not closed.
+     * @param checkpoint notified of the chunks written, or {@code null}.
+     * @return the number of persons written.
+     * @throws IOException if writing fails.
+     */
+    public long export(int afterId,
+                       boolean header,
+                       OutputStream out,
+                       Checkpoint checkpoint) throws IOException {
+        long start = System.nanoTime();
+
+        if (header && format == Format.CSV) {
+            out.write(CSV_HEADER.getBytes(StandardCharsets.UTF_8));
+        }
+
+        int[] range = DataAccessObject.instance().getIdRange();
+
+        if (range == null || range[1] <= afterId) {
+            out.flush();
+            return 0L;
+        }
+
+        long next = Math.max((long) afterId, (long) range[0] - 1L);
+        long last = range[1];
+        ExecutorService executor = createExecutor();
+        Deque<Future<Chunk>> window = new ArrayDeque<>();
+        long rows = 0L;
+        long lastReport = start;
+
+        try {
+            while (next < last || !window.isEmpty()) {
+                while (next < last && window.size() < 2 * threads) {
+                    final int chunkAfterId = (int) next;
+                    final int chunkToId =
+                            (int) Math.min(last, next + chunkSize);
+                    window.add(executor.submit(new Callable<Chunk>() {
+                        @Override
+                        public Chunk call() throws IOException {
+                            return readChunk(chunkAfterId, chunkToId);
+                        }
+                    }));
+                    next = chunkToId;
+                }
+
+                Chunk chunk = get(window.poll());
+                chunk.bytes.writeTo(out);
+                rows += chunk.rows;
+
+                if (checkpoint != null) {
+                    checkpoint.chunkWritten(chunk.toId, rows);
+                }
+
+                long now = System.nanoTime();
+
+                if (now - lastReport >= REPORT_NANOS) {
+                    lastReport = now;
+                    LOGGER.log(Level.INFO,
+                               "Exported {0} persons up to ID {1}, {2} rows/s.",
+                               new Object[]{ rows,
+                                             String.valueOf(chunk.toId),
+                                             getRowsPerSecond(rows, start) });
+                }
+            }
+
+            out.flush();
+        } finally {
+            for (Future<Chunk> future : window) {
+                future.cancel(true);
+            }
+
+            executor.shutdownNow();
+        }
+
+        LOGGER.log(Level.INFO, "Exported {0} persons, {1} rows/s.",
+                   new Object[]{ rows, getRowsPerSecond(rows, start) });
+        return rows;
+    }
+
+    /**
+     * Returns the export rate.
+     *
+     * @param rows  the number of rows exported.
+     * @param start the start of the export from {@link System#nanoTime()}.
+     * @return the number of rows per second.
+     */
+    public static long getRowsPerSecond(long rows, long start) {
+        long nanos = Math.max(1L, System.nanoTime() - start);
+        return (long)(rows * 1e9 / nanos);
+    }
+
+    /**
+     * Exports the person table to a file, resuming a previous export of the
+     * same file if it was interrupted.
+     *
+     * @param args the command line arguments.
+     * @throws IOException if the export fails.
+     */
+    public static void main(String[] args) throws IOException {
+        Format format = Format.NDJSON;
+        String fileName = null;
+
+        for (int i = 0; i < args.length; ++i) {
+            if (args[i].equals("--format") && i + 1 < args.length) {
+                format = Format.parse(args[++i]);
+            } else if (fileName == null && !args[i].startsWith("--")) {
+                fileName = args[i];
+            } else {
+                fileName = null;
+                break;
+            }
+        }
+
+        if (fileName == null) {
+            System.err.println("Usage: java " + PersonExporter.class.getName() +
+                               " [--format ndjson|csv] FILE");
+            System.exit(1);
+        }
+
+        File file = new File(fileName);
+        final File progressFile = new File(fileName + ".progress");
+        int afterId = 0;
+        long length = 0L;
+
+        if (progressFile.exists() && file.exists()) {
+            String[] progress = new String(
+                    Files.readAllBytes(progressFile.toPath()),
+                    StandardCharsets.UTF_8).trim().split("\\s+");
+            afterId = Integer.parseInt(progress[0]);
+            length = Long.parseLong(progress[1]);
+
+            // Drop whatever was written after the last complete chunk.
+            try (RandomAccessFile randomAccessFile =
+                    new RandomAccessFile(file, "rw")) {
+                randomAccessFile.setLength(length);
+            }
+
+            System.out.println("Resuming after ID " + afterId + ".");
+        }
+
+        long start = System.nanoTime();
+        long rows;
+
+        try (final FileOutputStream fileOut =
+                new FileOutputStream(file, length > 0L);
+             final BufferedOutputStream out =
+                new BufferedOutputStream(fileOut, 1 << 16)) {
+            rows = new PersonExporter(format).export(
+                    afterId, length == 0L, out, new Checkpoint() {
+                @Override
+                public void chunkWritten(int lastId, long written)
+                        throws IOException {
+                    out.flush();
+                    writeProgress(progressFile,
+                                  lastId + " " + fileOut.getChannel().size());
+                }
+            });
+        } finally {
+            DataAccessObject.instance().shutdown();
+        }
+
+        Files.deleteIfExists(progressFile.toPath());
+        System.out.println("Exported " + rows + " persons to " + fileName +
+                           " in " + (System.nanoTime() - start) / 1000000L +
+                           " ms, " + getRowsPerSecond(rows, start) +
+                           " rows/s.");
+    }
+
+    private static void writeProgress(File progressFile, String progress)
+            throws IOException {
+        File temporaryFile = new File(progressFile.getPath() + ".tmp");
+        Files.write(temporaryFile.toPath(),
+                    progress.getBytes(StandardCharsets.UTF_8));
+        Files.move(temporaryFile.toPath(),
+                   progressFile.toPath(),
+                   StandardCopyOption.REPLACE_EXISTING,
+                   StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Scans and encodes one chunk.
+     *
+     * @param afterId the ID after which the chunk starts.
+     * @param toId    the largest ID of the chunk.
+     * @return the encoded chunk.
+     * @throws IOException if encoding fails.
+     */
+    private Chunk readChunk(int afterId, int toId) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(8192);
+        final Writer writer = new BufferedWriter(
+                new OutputStreamWriter(bytes, StandardCharsets.UTF_8));
+        final long[] rows = new long[1];
+        final SimpleDateFormat dateFormat =
+                new SimpleDateFormat("yyyy-MM-dd", Locale.ROOT);
+
+        try {
+            CONNECTIONS.acquire();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("The export was cancelled.");
+        }
+
+        try {
+            DataAccessObject.instance().scanUsersInRange(
+                    afterId, toId, new PersonHandler() {
+                @Override
+                public void handle(Person person) throws IOException {
+                    if (format == Format.CSV) {
+                        writeCsv(person, dateFormat, writer);
+                    } else {
+                        GSON.toJson(person, Person.class, writer);
+                        writer.write('\n');
+                    }
+
+                    rows[0]++;
+                }
+            });
+        } finally {
+            CONNECTIONS.release();
+        }
+
+        writer.flush();
+        return new Chunk(toId, rows[0], bytes);
+    }
+
+    private static void writeCsv(Person person,
+                                 SimpleDateFormat dateFormat,
+                                 Writer writer) throws IOException {
+        Date created = person.getCreated();
+        writer.write(Integer.toString(person.getId()));
+        writer.write(',');
+        writeCsvField(person.getFirstName(), writer);
+        writer.write(',');
+        writeCsvField(person.getLastName(), writer);
+        writer.write(',');
+        writeCsvField(person.getEmail(), writer);
+        writer.write(',');
+
+        if (created != null) {
+            writer.write(dateFormat.format(created));
+        }
+
+        writer.write('\n');
+    }
+
+    /**
+     * Writes a field, quoted if it contains a comma, a quote or a line break.
+     *
+     * @param field  the field or {@code null}.
+     * @param writer the writer to write to.
+     * @throws IOException if writing fails.
+     */
+    private static void writeCsvField(String field, Writer writer)
+            throws IOException {
+        if (field == null) {
+            return;
+        }
+
+        boolean quote = false;
+
+        for (int i = 0; i < field.length() && !quote; ++i) {
+            char c = field.charAt(i);
+            quote = c == ',' || c == '"' || c == '\n' || c == '\r';
+        }
+
+        if (!quote) {
+            writer.write(field);
+            return;
+        }
+
+        writer.write('"');
+        writer.write(field.replace("\"", "\"\""));
+        writer.write('"');
+    }
+
+    private ExecutorService createExecutor() {
+        final AtomicInteger threadNumber = new AtomicInteger();
+
+        return Executors.newFixedThreadPool(threads, new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(
+                        runnable,
+                        "dbfun-export-" + threadNumber.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+    }
+
+    private static Chunk get(Future<Chunk> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IOException("The export was interrupted.", ex);
+        } catch (ExecutionException ex) {
+            if (ex.getCause() instanceof IOException) {
+                throw (IOException) ex.getCause();
+            }
+
+            if (ex.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) ex.getCause();
+            }
+
+            throw new IOException(ex.getCause());
+        }
+    }
+
+    /**
+     * An encoded chunk.
+     */
+    private static final class Chunk {
+
+        final int toId;
+        final long rows;
+        final ByteArrayOutputStream bytes;
+
+        Chunk(int toId, long rows, ByteArrayOutputStream bytes) {
+            this.toId = toId;
+            this.rows = rows;
+            this.bytes = bytes;
+        }
+    }
+}
@@ -0,0 +1,415 @@
+package net.coderodde.dbfun.controllers;
+
+import com.google.gson.Gson;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.servlet.AsyncContext;
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
+
+/**
+ * This class fans the saved persons out to the clients of
+ * {@code /show/stream} as Server-Sent Events. A saved person is encoded once
+ * and offered to the queue of every subscriber, which holds at most
+ * {@code DBFUN_SSE_BUFFER_EVENTS} events; a single thread then writes the
+ * queues to the clients with non-blocking servlet I/O, so a slow client
+ * never holds up the writers or the other clients. A subscriber whose queue
+ * overflows is disconnected and resumes from its last event ID. Every
+ * {@code DBFUN_SSE_HEARTBEAT_MILLIS} each client is sent a comment, which
+ * keeps idle connections open and reveals the closed ones.
+ *
+ * <p>The ID of an event lists the largest person ID of each shard seen by
+ * the feed so far, starting from the largest ones in the table, separated by
+ * commas, so an update of an older person does not move the resume point
+ * backwards. One ID per shard is needed since only the IDs within a shard
+ * grow in the order the persons are inserted; without shards the event ID is
+ * a single person ID. A batch whose generated IDs the driver does not report
+ * is not sent; the clients see it after a reconnect.
+ *
+ * @author Rodion "rodde" Efremov
+ * @version 1.7 (Oct 18, 2026)
+ */
+public final class PersonFeed implements PersonListener {
+
+    private static final Logger LOGGER =
+            Logger.getLogger(PersonFeed.class.getName());
+
+    /**
+     * The maximum number of events queued for a client.
+     */
+    private static final int BUFFER_EVENTS =
+            Math.max(1, Configuration.getInt("DBFUN_SSE_BUFFER_EVENTS", 1024));
+
+    /**
+     * The time between two heartbeats.
+     */
+    private static final long HEARTBEAT_MILLIS =
+            Math.max(1000L,
+                     Configuration.getLong("DBFUN_SSE_HEARTBEAT_MILLIS",
+                                           15000L));
+
+    /**
+     * The heartbeat, a comment ignored by the clients.
+     */
+    private static final byte[] HEARTBEAT =
+            ": heartbeat\n\n".getBytes(StandardCharsets.UTF_8);
+
+    /**
+     * Serializes the persons.
+     */
+    private static final Gson GSON = PersonTypeAdapter.newGson();
+
+    /**
+     * Whether the feed has been created.
+     */
+    private static volatile boolean started;
+
+    /**
+     * Holds the feed. Created on first use.
+     */
+    private static final class Holder {
+        static final PersonFeed INSTANCE = new PersonFeed();
+    }
+
+    private final List<Subscriber> subscribers = new CopyOnWriteArrayList<>();
+    private final ScheduledExecutorService fanOut;
+    private final AtomicLong eventCount = new AtomicLong();
+    private final AtomicLong overflowCount = new AtomicLong();
+    private final int[] lastIds;
+
+    private PersonFeed() {
+        this.lastIds = loadMaxIds();
+        this.fanOut = Executors.newSingleThreadScheduledExecutor(
+                new ThreadFactory() {
+                    @Override
+                    public Thread newThread(Runnable runnable) {
+                        Thread thread =
+                                new Thread(runnable, "dbfun-person-feed");
+                        thread.setDaemon(true);
+                        return thread;
+                    }
+                });
+        this.fanOut.scheduleWithFixedDelay(new Runnable() {
+            @Override
+            public void run() {
+                sendHeartbeats();
+            }
+        }, HEARTBEAT_MILLIS, HEARTBEAT_MILLIS, TimeUnit.MILLISECONDS);
+        DataAccessObject.instance().addPersonListener(this);
+        started = true;
+    }
+
+    public static PersonFeed instance() {
+        return Holder.INSTANCE;
+    }
+
+    /**
+     * Returns the largest ID of each shard to start the event IDs from, or
+     * zeros if they cannot be read.
+     *
+     * @return the largest ID of each shard.
+     */
+    private static int[] loadMaxIds() {
+        try {
+            return DataAccessObject.instance().getMaxIds();
+        } catch (RuntimeException ex) {
+            LOGGER.log(Level.WARNING, "Cannot read the largest IDs.", ex);
+            return new int[DataAccessObject.getShardCount()];
+        }
+    }
+
+    /**
+     * @return {@code true} if the feed has been created.
+     */
+    static boolean isStarted() {
+        return started;
+    }
+
+    /**
+     * Formats the ID of an event.
+     *
+     * @param lastIds the largest person ID seen from each shard.
+     * @return the IDs separated by commas.
+     */
+    static String formatEventId(int[] lastIds) {
+        StringBuilder sb = new StringBuilder();
+
+        for (int i = 0; i < lastIds.length; ++i) {
+            if (i > 0) {
+                sb.append(',');
+            }
+
+            sb.append(lastIds[i]);
+        }
+
+        return sb.toString();
+    }
+
+    /**
+     * Parses the ID of an event. A single person ID stands for every shard.
+     *
+     * @param eventId the ID of an event.
+     * @return the largest person ID seen from each shard.
+     * @throws NumberFormatException if the ID is malformed or does not have
+     *                               one person ID per shard.
+     */
+    static int[] parseEventId(String eventId) {
+        String[] parts = eventId.trim().split(",", -1);
+        int[] lastIds = new int[DataAccessObject.getShardCount()];
+
+        if (parts.length != 1 && parts.length != lastIds.length) {
+            throw new NumberFormatException(
+                    "Expected " + lastIds.length + " IDs.");
+        }
+
+        for (int i = 0; i < lastIds.length; ++i) {
+            lastIds[i] = Integer.parseInt(
+                    parts[parts.length == 1 ? 0 : i].trim());
+        }
+
+        return lastIds;
+    }
+
+    /**
+     * Encodes a person as an event.
+     *
+     * @param id     the ID of the event.
+     * @param person the person.
+     * @return the event in UTF-8.
+     */
+    static byte[] encode(String id, Person person) {
+        return ("id: " + id + "\nevent: person\ndata: " +
+                GSON.toJson(person, Person.class) + "\n\n")
+                .getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Starts queueing the saved persons for a client. The queued events are
+     * written once the output stream is switched to non-blocking mode with
+     * the returned subscriber as the write listener.
+     *
+     * @param asyncContext the asynchronous context of the request.
+     * @param out          the output stream of the response.
+     * @return the subscriber.
+     */
+    Subscriber subscribe(AsyncContext asyncContext, ServletOutputStream out) {
+        Subscriber subscriber = new Subscriber(asyncContext, out);
+        asyncContext.addListener(subscriber);
+        subscribers.add(subscriber);
+        return subscriber;
+    }
+
+    /**
+     * Offers the saved person to every subscriber.
+     *
+     * @param person the saved person.
+     */
+    @Override
+    public void personSaved(Person person) {
+        synchronized (this) {
+            int shard = DataAccessObject.shardOfId(person.getId());
+            lastIds[shard] = Math.max(lastIds[shard], person.getId());
+
+            if (subscribers.isEmpty()) {
+                return;
+            }
+
+            byte[] event = encode(formatEventId(lastIds), person);
+            eventCount.incrementAndGet();
+
+            for (Subscriber subscriber : subscribers) {
+                subscriber.offer(event);
+            }
+        }
+    }
+
+    /**
+     * @return the number of connected clients.
+     */
+    int getSubscriberCount() {
+        return subscribers.size();
+    }
+
+    /**
+     * @return the number of events fanned out.
+     */
+    long getEventCount() {
+        return eventCount.get();
+    }
+
+    /**
+     * @return the number of clients disconnected since their queue was full.
+     */
+    long getOverflowCount() {
+        return overflowCount.get();
+    }
+
+    /**
+     * Disconnects all the clients and stops the fan-out thread.
+     */
+    void shutdown() {
+        for (Subscriber subscriber : subscribers) {
+            subscriber.close();
+        }
+
+        fanOut.shutdownNow();
+    }
+
+    private void sendHeartbeats() {
+        for (Subscriber subscriber : subscribers) {
+            subscriber.offerHeartbeat();
+        }
+    }
+
+    /**
+     * A connected client.
+     */
+    final class Subscriber implements WriteListener, AsyncListener {
+
+        private final AsyncContext asyncContext;
+        private final ServletOutputStream out;
+        private final BlockingQueue<byte[]> queue =
+                new ArrayBlockingQueue<>(BUFFER_EVENTS);
+        private final AtomicBoolean scheduled = new AtomicBoolean();
+        private final Runnable drainTask = new Runnable() {
+            @Override
+            public void run() {
+                scheduled.set(false);
+                drain();
+            }
+        };
+        private volatile boolean listening;
+        private volatile boolean overflowed;
+        private volatile boolean closed;
+
+        Subscriber(AsyncContext asyncContext, ServletOutputStream out) {
+            this.asyncContext = asyncContext;
+            this.out = out;
+        }
+
+        /**
+         * Called by the container once the stream is in non-blocking mode
+         * and whenever it can take more data after a write did not complete.
+         */
+        @Override
+        public void onWritePossible() {
+            listening = true;
+            drain();
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            close();
+        }
+
+        @Override
+        public void onComplete(AsyncEvent event) {
+            closed = true;
+            subscribers.remove(this);
+        }
+
+        @Override
+        public void onTimeout(AsyncEvent event) {
+            close();
+        }
+
+        @Override
+        public void onError(AsyncEvent event) {
+            close();
+        }
+
+        @Override
+        public void onStartAsync(AsyncEvent event) {}
+
+        /**
+         * Disconnects the client.
+         */
+        synchronized void close() {
+            if (closed) {
+                return;
+            }
+
+            closed = true;
+            subscribers.remove(this);
+
+            try {
+                asyncContext.complete();
+            } catch (IllegalStateException ex) {
+                // The request is already complete.
+            }
+        }
+
+        private void offer(byte[] event) {
+            if (!queue.offer(event)) {
+                if (!overflowed) {
+                    overflowed = true;
+                    overflowCount.incrementAndGet();
+                }
+            }
+
+            schedule();
+        }
+
+        private void offerHeartbeat() {
+            if (queue.offer(HEARTBEAT)) {
+                schedule();
+            }
+        }
+
+        private void schedule() {
+            if (listening && scheduled.compareAndSet(false, true)) {
+                try {
+                    fanOut.execute(drainTask);
+                } catch (RejectedExecutionException ex) {
+                    scheduled.set(false);
+                }
+            }
+        }
+
+        /**
+         * Writes the queued events while the stream accepts them without
+         * blocking.
+         */
+        private synchronized void drain() {
+            if (closed || !listening) {
+                return;
+            }
+
+            if (overflowed) {
+                close();
+                return;
+            }
+
+            try {
+                while (out.isReady()) {
+                    byte[] event = queue.poll();
+
+                    if (event == null) {
+                        out.flush();
+                        return;
+                    }
+
+                    out.write(event);
+                }
+            } catch (IOException | IllegalStateException ex) {
+                LOGGER.log(Level.FINE, "A stream client disconnected.", ex);
+                close();
+            }
+        }
+    }
+}
@@ -0,0 +1,21 @@
+package net.coderodde.dbfun.controllers;
+
+import java.io.IOException;
+
+/**
+ * This interface defines the API for consuming persons one at a time as they 
+ * are read from the database.
+ * 
+ * @author Rodion "rodde" Efremov
+ * @version 1.7 (Oct 18, 2026)
+ */
+public interface PersonHandler {
+    
+    /**
+     * Handles a person read from the database.
+     * 
+     * @param person the person to handle.
+     * @throws IOException if the person cannot be written out.
+     */
+    void handle(Person person) throws IOException;
+}
@@ -0,0 +1,19 @@
+package net.coderodde.dbfun.controllers;
+
+/**
+ * This interface defines the API for being notified of the persons written to
+ * the database through {@link DataAccessObject}.
+ *
+ * @author Rodion "rodde" Efremov
+ * @version 1.7 (Oct 18, 2026)
+ */
+public interface PersonListener {
+
+    /**
+     * Called after a person has been inserted or updated and the change has
+     * been committed. The ID of the person is set.
+     *
+     * @param person the saved person.
+     */
+    void personSaved(Person person);
+}
@@ -0,0 +1,656 @@
+package net.coderodde.dbfun.controllers;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * This class implements an in-memory prefix index over the first and last
+ * names of the persons. Each person has two entries, one per name, sorted by
+ * the lower-cased name and the ID, so a prefix query is a binary search
+ * followed by a scan of the matching run. The index holds only the IDs and
+ * the names, the names as UTF-8 in one shared byte array, so an entry takes
+ * eight bytes plus the bytes of the name. The matching persons are then read
+ * with {@link DataAccessObject#getUsersByIds(int[])}, from the snapshot or the
+ * person cache if possible.
+ *
+ * <p>The index is built from a streaming scan of the table and kept current
+ * through {@link PersonListener}. New entries go to a small sorted delta which
+ * is merged into the main arrays once it has {@code DBFUN_SEARCH_DELTA_SIZE}
+ * entries. A person saved again, for example by an upsert, shadows his/her
+ * older entries until the next merge drops them.
+ *
+ * <p>A failed load is retried after a delay that doubles from
+ * {@code MIN_RETRY_MILLIS} up to {@code MAX_RETRY_MILLIS}. The persons saved
+ * until the index is loaded are merged like later ones, so they take the
+ * memory of at most one entry pair per person however long the load takes,
+ * and they replace the versions the load reads.
+ *
+ * @author Rodion "rodde" Efremov
+ * @version 1.7 (Oct 18, 2026)
+ */
+public final class PersonSearchIndex implements PersonListener {
+
+    private static final Logger LOGGER =
+            Logger.getLogger(PersonSearchIndex.class.getName());
+
+    /**
+     * Whether the search index is on.
+     */
+    static final boolean ENABLED =
+            Configuration.getBoolean("DBFUN_SEARCH_INDEX", false);
+
+    /**
+     * The delay before the first retry of a failed load.
+     */
+    private static final long MIN_RETRY_MILLIS = 1000L;
+
+    /**
+     * The longest delay between two attempts to load the index.
+     */
+    private static final long MAX_RETRY_MILLIS = 60000L;
+
+    /**
+     * Holds the index. Created on first use.
+     */
+    private static final class Holder {
+        static final PersonSearchIndex INSTANCE = new PersonSearchIndex(
+                Configuration.getInt("DBFUN_SEARCH_DELTA_SIZE", 4096));
+    }
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final int maxDeltaSize;
+
+    // The main entries in ascending order. The name of the entry i is
+    // keyBytes[keyOffsets[i]] up to keyBytes[keyOffsets[i + 1]].
+    private Entries main = new Entries(0, 0);
+
+    private final List<DeltaEntry> delta = new ArrayList<>();
+
+    /**
+     * Maps the IDs of the persons saved since the last merge to the sequence
+     * number of their latest save. The entries of the other saves are stale.
+     */
+    private final Map<Integer, Long> saved = new HashMap<>();
+    private long sequence;
+
+    private volatile boolean ready;
+    private Thread loader;
+
+    PersonSearchIndex(int maxDeltaSize) {
+        this.maxDeltaSize = Math.max(1, maxDeltaSize);
+    }
+
+    public static PersonSearchIndex instance() {
+        return Holder.INSTANCE;
+    }
+
+    /**
+     * Starts listening to the saved persons and loads the index from the
+     * database in a background thread, retrying until it loads.
+     */
+    public synchronized void loadInBackground() {
+        if (loader != null) {
+            return;
+        }
+
+        DataAccessObject.instance().addPersonListener(this);
+        loader = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                runLoader();
+            }
+        }, "dbfun-search-index-loader");
+        loader.setDaemon(true);
+        loader.start();
+    }
+
+    /**
+     * Stops retrying to load the index.
+     */
+    public synchronized void stop() {
+        if (loader == null) {
+            return;
+        }
+
+        loader.interrupt();
+
+        try {
+            loader.join(1000L);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+
+        loader = null;
+    }
+
+    /**
+     * @return {@code true} if the index has been loaded.
+     */
+    public boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * @return the number of entries in the index, two per person.
+     */
+    public int getEntryCount() {
+        lock.readLock().lock();
+
+        try {
+            return main.size + delta.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return the number of bytes taken by the arrays of the main entries.
+     */
+    public long getFootprintBytes() {
+        lock.readLock().lock();
+
+        try {
+            return main.getFootprintBytes();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Returns the persons whose first or last name starts with the given
+     * prefix, ignoring case, ordered by the matching name and the ID. A
+     * person whose names the database no longer matches is left out.
+     *
+     * @param prefix the prefix.
+     * @param limit  the maximum number of persons to return.
+     * @return the matching persons.
+     */
+    public List<Person> search(String prefix, int limit) {
+        String key = normalize(prefix);
+        int[] ids = searchIds(key, limit);
+        Person[] persons = DataAccessObject.instance().getUsersByIds(ids);
+        List<Person> result = new ArrayList<>(persons.length);
+
+        for (Person person : persons) {
+            if (person != null &&
+                    (normalize(person.getFirstName()).startsWith(key) ||
+                     normalize(person.getLastName()).startsWith(key))) {
+                result.add(person);
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Returns the IDs of the persons with a name starting with the given
+     * normalized prefix.
+     *
+     * @param key   the normalized prefix.
+     * @param limit the maximum number of IDs to return.
+     * @return the matching IDs, ordered by the matching name and the ID.
+     */
+    int[] searchIds(String key, int limit) {
+        byte[] prefix = key.getBytes(StandardCharsets.UTF_8);
+        int[] ids = new int[Math.min(limit, 64)];
+        int count = 0;
+        Set<Integer> seen = new HashSet<>();
+
+        lock.readLock().lock();
+
+        try {
+            int i = main.lowerBound(prefix);
+            int j = lowerBound(delta, prefix);
+
+            while (count < limit) {
+                boolean hasMain = i < main.size && main.startsWith(i, prefix);
+                boolean hasDelta = j < delta.size() &&
+                                   startsWith(delta.get(j).key, prefix);
+                int id;
+                boolean current;
+
+                if (hasMain && (!hasDelta ||
+                        main.compareTo(i, delta.get(j)) <= 0)) {
+                    id = main.ids[i++];
+                    current = !saved.containsKey(id);
+                } else if (hasDelta) {
+                    DeltaEntry entry = delta.get(j++);
+                    id = entry.id;
+                    current = isCurrent(entry);
+                } else {
+                    break;
+                }
+
+                if (current && seen.add(id)) {
+                    if (count == ids.length) {
+                        ids = Arrays.copyOf(ids, Math.min(2 * count, limit));
+                    }
+
+                    ids[count++] = id;
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        return Arrays.copyOf(ids, count);
+    }
+
+    /**
+     * Adds the saved person to the index.
+     *
+     * @param person the saved person.
+     */
+    @Override
+    public void personSaved(Person person) {
+        byte[] firstName = toKey(person.getFirstName());
+        byte[] lastName = toKey(person.getLastName());
+        lock.writeLock().lock();
+
+        try {
+            long saveSequence = ++sequence;
+            saved.put(person.getId(), saveSequence);
+            insertIntoDelta(new DeltaEntry(firstName, person.getId(),
+                                           saveSequence));
+            insertIntoDelta(new DeltaEntry(lastName, person.getId(),
+                                           saveSequence));
+
+            if (delta.size() >= maxDeltaSize) {
+                merge();
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void runLoader() {
+        long retryMillis = MIN_RETRY_MILLIS;
+
+        while (!load()) {
+            LOGGER.log(Level.INFO,
+                       "Retrying to load the search index in {0} ms.",
+                       retryMillis);
+
+            try {
+                Thread.sleep(retryMillis);
+            } catch (InterruptedException ex) {
+                return;
+            }
+
+            retryMillis = Math.min(2L * retryMillis, MAX_RETRY_MILLIS);
+        }
+    }
+
+    /**
+     * Builds the main entries from a streaming scan of the table. The names
+     * are packed as they are read and sorted once the scan is done. Until
+     * then, the main entries hold the persons saved since the index started
+     * listening, which take the place of the versions the scan reads.
+     *
+     * @return {@code true} if the index was loaded.
+     */
+    boolean load() {
+        long start = System.nanoTime();
+        final Entries loaded = new Entries(1024, 16 * 1024);
+
+        try {
+            DataAccessObject.instance().streamAllUsers(new PersonHandler() {
+                @Override
+                public void handle(Person person) {
+                    loaded.add(toKey(person.getFirstName()), person.getId());
+                    loaded.add(toKey(person.getLastName()), person.getId());
+                }
+            });
+        } catch (IOException | RuntimeException ex) {
+            LOGGER.log(Level.SEVERE, "Cannot load the search index.", ex);
+            return false;
+        }
+
+        Entries sorted = loaded.sorted();
+
+        lock.writeLock().lock();
+
+        try {
+            merge();
+
+            if (main.size == 0) {
+                main = sorted;
+            } else {
+                main = mergeLoaded(sorted);
+            }
+
+            ready = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        LOGGER.log(Level.INFO,
+                   "Loaded {0} persons into the search index in {1} ms, " +
+                   "taking {2} bytes.",
+                   new Object[]{ String.valueOf(sorted.size / 2),
+                                 (System.nanoTime() - start) / 1000000L,
+                                 String.valueOf(getFootprintBytes()) });
+        return true;
+    }
+
+    /**
+     * Merges the loaded entries with the main entries, which hold the persons
+     * saved while loading. The loaded entries of those persons are dropped.
+     * Must be called while holding the write lock.
+     *
+     * @param loaded the loaded entries in ascending order.
+     * @return the merged entries.
+     */
+    private Entries mergeLoaded(Entries loaded) {
+        Set<Integer> savedIds = new HashSet<>();
+
+        for (int i = 0; i < main.size; ++i) {
+            savedIds.add(main.ids[i]);
+        }
+
+        Entries merged = new Entries(loaded.size + main.size,
+                                     loaded.bytesLength() + main.bytesLength());
+        int i = 0;
+        int j = 0;
+
+        while (i < loaded.size || j < main.size) {
+            if (i < loaded.size && savedIds.contains(loaded.ids[i])) {
+                i++;
+            } else if (j == main.size ||
+                    (i < loaded.size && loaded.compareTo(i, main, j) <= 0)) {
+                merged.add(loaded, i++);
+            } else {
+                merged.add(main, j++);
+            }
+        }
+
+        return merged;
+    }
+
+    /**
+     * Merges the delta into the main entries and drops the stale entries.
+     * Must be called while holding the write lock.
+     */
+    private void merge() {
+        int deltaBytes = 0;
+
+        for (DeltaEntry entry : delta) {
+            deltaBytes += entry.key.length;
+        }
+
+        Entries merged = new Entries(main.size + delta.size(),
+                                     main.bytesLength() + deltaBytes);
+        int i = 0;
+        int j = 0;
+
+        while (i < main.size || j < delta.size()) {
+            if (j == delta.size() ||
+                    (i < main.size && main.compareTo(i, delta.get(j)) <= 0)) {
+                if (!saved.containsKey(main.ids[i])) {
+                    merged.add(main, i);
+                }
+
+                i++;
+            } else {
+                DeltaEntry entry = delta.get(j++);
+
+                if (isCurrent(entry)) {
+                    merged.add(entry.key, entry.id);
+                }
+            }
+        }
+
+        main = merged;
+        delta.clear();
+        saved.clear();
+    }
+
+    private void insertIntoDelta(DeltaEntry entry) {
+        int index = delta.size();
+
+        while (index > 0 && delta.get(index - 1).compareTo(entry) > 0) {
+            index--;
+        }
+
+        delta.add(index, entry);
+    }
+
+    private boolean isCurrent(DeltaEntry entry) {
+        Long latest = saved.get(entry.id);
+        return latest != null && latest == entry.sequence;
+    }
+
+    private static int lowerBound(List<DeltaEntry> entries, byte[] key) {
+        int from = 0;
+        int to = entries.size();
+
+        while (from < to) {
+            int middle = (from + to) >>> 1;
+            byte[] middleKey = entries.get(middle).key;
+
+            if (compare(middleKey, 0, middleKey.length,
+                        key, 0, key.length) < 0) {
+                from = middle + 1;
+            } else {
+                to = middle;
+            }
+        }
+
+        return from;
+    }
+
+    /**
+     * Compares two names as unsigned bytes, which orders UTF-8 by the code
+     * points.
+     */
+    private static int compare(byte[] bytes1, int from1, int to1,
+                               byte[] bytes2, int from2, int to2) {
+        int length = Math.min(to1 - from1, to2 - from2);
+
+        for (int i = 0; i < length; ++i) {
+            int cmp = (bytes1[from1 + i] & 0xff) - (bytes2[from2 + i] & 0xff);
+
+            if (cmp != 0) {
+                return cmp;
+            }
+        }
+
+        return Integer.compare(to1 - from1, to2 - from2);
+    }
+
+    private static boolean startsWith(byte[] key, byte[] prefix) {
+        return key.length >= prefix.length &&
+               compare(key, 0, prefix.length, prefix, 0, prefix.length) == 0;
+    }
+
+    private static String normalize(String name) {
+        return name.trim().toLowerCase(Locale.ROOT);
+    }
+
+    private static byte[] toKey(String name) {
+        return normalize(name).getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * A growable list of entries packed into arrays.
+     */
+    private static final class Entries {
+
+        int size;
+        int[] ids;
+        int[] keyOffsets;
+        byte[] keyBytes;
+
+        Entries(int capacity, int bytesCapacity) {
+            this.ids = new int[capacity];
+            this.keyOffsets = new int[capacity + 1];
+            this.keyBytes = new byte[bytesCapacity];
+        }
+
+        int bytesLength() {
+            return keyOffsets[size];
+        }
+
+        long getFootprintBytes() {
+            return 4L * ids.length + 4L * keyOffsets.length + keyBytes.length;
+        }
+
+        void add(byte[] key, int id) {
+            append(key, 0, key.length, id);
+        }
+
+        void add(Entries entries, int index) {
+            append(entries.keyBytes,
+                   entries.keyOffsets[index],
+                   entries.keyOffsets[index + 1],
+                   entries.ids[index]);
+        }
+
+        private void append(byte[] key, int from, int to, int id) {
+            int length = to - from;
+            int offset = keyOffsets[size];
+
+            if (size == ids.length) {
+                int capacity = size + (size >> 1) + 16;
+                ids = Arrays.copyOf(ids, capacity);
+                keyOffsets = Arrays.copyOf(keyOffsets, capacity + 1);
+            }
+
+            if (offset + length > keyBytes.length) {
+                keyBytes = Arrays.copyOf(
+                        keyBytes,
+                        Math.max(offset + length,
+                                 keyBytes.length + (keyBytes.length >> 1) + 
+                                 1024));
+            }
+
+            System.arraycopy(key, from, keyBytes, offset, length);
+            ids[size] = id;
+            keyOffsets[++size] = offset + length;
+        }
+
+        int compareTo(int index, Entries other, int otherIndex) {
+            int cmp = compare(keyBytes, keyOffsets[index],
+                              keyOffsets[index + 1],
+                              other.keyBytes, other.keyOffsets[otherIndex],
+                              other.keyOffsets[otherIndex + 1]);
+            return cmp != 0 ?
+                   cmp :
+                   Integer.compare(ids[index], other.ids[otherIndex]);
+        }
+
+        int compareTo(int index, DeltaEntry entry) {
+            int cmp = compare(keyBytes, keyOffsets[index],
+                              keyOffsets[index + 1],
+                              entry.key, 0, entry.key.length);
+            return cmp != 0 ? cmp : Integer.compare(ids[index], entry.id);
+        }
+
+        boolean startsWith(int index, byte[] prefix) {
+            int from = keyOffsets[index];
+            return keyOffsets[index + 1] - from >= prefix.length &&
+                   compare(keyBytes, from, from + prefix.length,
+                           prefix, 0, prefix.length) == 0;
+        }
+
+        int lowerBound(byte[] key) {
+            int from = 0;
+            int to = size;
+
+            while (from < to) {
+                int middle = (from + to) >>> 1;
+
+                if (compare(keyBytes, keyOffsets[middle],
+                            keyOffsets[middle + 1],
+                            key, 0, key.length) < 0) {
+                    from = middle + 1;
+                } else {
+                    to = middle;
+                }
+            }
+
+            return from;
+        }
+
+        /**
+         * Returns the entries in ascending order, sorting a permutation with
+         * a bottom-up merge sort so that no entry objects are created.
+         *
+         * @return the sorted entries.
+         */
+        Entries sorted() {
+            int[] order = new int[size];
+            int[] buffer = new int[size];
+
+            for (int i = 0; i < size; ++i) {
+                order[i] = i;
+            }
+
+            for (int width = 1; width < size; width *= 2) {
+                for (int from = 0; from < size; from += 2 * width) {
+                    int middle = Math.min(from + width, size);
+                    int to = Math.min(from + 2 * width, size);
+                    int i = from;
+                    int j = middle;
+                    int k = from;
+
+                    while (i < middle || j < to) {
+                        if (j == to ||
+                                (i < middle &&
+                                 compareTo(order[i], this, order[j]) <= 0)) {
+                            buffer[k++] = order[i++];
+                        } else {
+                            buffer[k++] = order[j++];
+                        }
+                    }
+                }
+
+                int[] swap = order;
+                order = buffer;
+                buffer = swap;
+            }
+
+            Entries sorted = new Entries(size, bytesLength());
+
+            for (int index : order) {
+                sorted.add(this, index);
+            }
+
+            return sorted;
+        }
+    }
+
+    /**
+     * An entry of the delta.
+     */
+    private static final class DeltaEntry {
+
+        final byte[] key;
+        final int id;
+        final long sequence;
+
+        DeltaEntry(byte[] key, int id, long sequence) {
+            this.key = key;
+            this.id = id;
+            this.sequence = sequence;
+        }
+
+        int compareTo(DeltaEntry other) {
+            int cmp = compare(key, 0, key.length,
+                              other.key, 0, other.key.length);
+            return cmp != 0 ? cmp : Integer.compare(id, other.id);
+        }
+    }
+}
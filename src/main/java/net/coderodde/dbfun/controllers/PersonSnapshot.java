@@ -0,0 +1,711 @@
+package net.coderodde.dbfun.controllers;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.sql.Date;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * This class keeps a compact in-memory copy of the person table. The rows are
+ * stored column-wise: the IDs in a sorted {@code int} array, the names and
+ * the email addresses as UTF-8 in one shared byte array with four offsets per
+ * row, and the creation dates in a {@code long} array. A row takes about a
+ * third of the memory of a {@link Person} with its strings.
+ *
+ * <p>The copy is published as an immutable {@link Version} through an
+ * {@link AtomicReference}, so the readers never lock. The single writer
+ * either appends beyond the length of the published version, which no reader
+ * looks at, or copies the arrays before changing a published row.
+ *
+ * <p>The copy is loaded with a streaming scan and then kept fresh by polling
+ * each shard for the rows with IDs larger than the largest one seen from it
+ * every {@code DBFUN_SNAPSHOT_POLL_MILLIS}, and right away after an insertion
+ * through {@link DataAccessObject}. The updates made through it are applied
+ * directly; the rows saved through it beyond the largest ID seen are kept
+ * until the poller has caught up with them and then applied over whatever it
+ * read, since it may read an older version from a lagging replica. The rows
+ * the poller picks up from other processes advance the table version of
+ * {@link DataAccessObject}. The updates made by other processes are not seen,
+ * nor are the rows that other processes commit out of ID order; a read
+ * missing the snapshot falls back to the database.
+ *
+ * @author Rodion "rodde" Efremov
+ * @version 1.7 (Oct 18, 2026)
+ */
+public final class PersonSnapshot implements PersonListener {
+
+    private static final Logger LOGGER =
+            Logger.getLogger(PersonSnapshot.class.getName());
+
+    /**
+     * Whether the snapshot mode is on.
+     */
+    static final boolean ENABLED =
+            Configuration.getBoolean("DBFUN_SNAPSHOT", false);
+
+    /**
+     * The creation time of the rows without one.
+     */
+    private static final long NO_DATE = Long.MIN_VALUE;
+
+    /**
+     * The number of offsets per row: the starts of the first name, the last
+     * name and the email address, and the end of the email address.
+     */
+    private static final int OFFSETS_PER_ROW = 4;
+
+    /**
+     * Holds the snapshot. Created on first use.
+     */
+    private static final class Holder {
+        static final PersonSnapshot INSTANCE = new PersonSnapshot(
+                Configuration.getLong("DBFUN_SNAPSHOT_POLL_MILLIS", 1000L),
+                Configuration.getInt("DBFUN_SNAPSHOT_POLL_BATCH", 1000));
+    }
+
+    private final long pollMillis;
+    private final int pollBatch;
+    private final AtomicReference<Version> current =
+            new AtomicReference<>(Version.EMPTY);
+    private final AtomicLong readCount = new AtomicLong();
+
+    /**
+     * Guards the writer state below.
+     */
+    private final Object writeLock = new Object();
+
+    // The writer state. It starts from the published version and is
+    // published as a new version. The row arrays are shared with the
+    // published version unless copied.
+    private boolean pending;
+    private boolean rowsCopied;
+    private int size;
+    private int[] ids;
+    private int[] offsets;
+    private byte[] strings;
+    private int stringsLength;
+    private long[] created;
+
+    /**
+     * The IDs saved while loading. They are read again once the snapshot is
+     * loaded since the scan may have missed their latest versions.
+     */
+    private final Set<Integer> savedWhileLoading = new HashSet<>();
+
+    /**
+     * Signals the poller.
+     */
+    private final Object pollSignal = new Object();
+    private boolean pollRequested;
+
+    private volatile boolean ready;
+    private volatile boolean running;
+
+    /**
+     * The largest ID seen from each shard, since only the IDs within a shard
+     * grow in the order the rows are inserted. Guarded by the write lock.
+     */
+    private int[] lastSeenIds = new int[1];
+
+    /**
+     * The rows of each shard saved with IDs larger than the largest one seen
+     * from the shard. Guarded by the write lock.
+     */
+    private List<NavigableMap<Integer, Person>> savedAhead = new ArrayList<>();
+    private volatile long lastRefreshMillis;
+    private Thread poller;
+
+    PersonSnapshot(long pollMillis, int pollBatch) {
+        this.pollMillis = Math.max(1L, pollMillis);
+        this.pollBatch = Math.max(1, pollBatch);
+    }
+
+    public static PersonSnapshot instance() {
+        return Holder.INSTANCE;
+    }
+
+    /**
+     * Returns the snapshot if the snapshot mode is on and the snapshot is
+     * loaded.
+     *
+     * @return the snapshot or {@code null}.
+     */
+    static PersonSnapshot getIfReady() {
+        if (!ENABLED) {
+            return null;
+        }
+
+        PersonSnapshot snapshot = instance();
+        return snapshot.ready ? snapshot : null;
+    }
+
+    /**
+     * Starts listening to the saved persons and starts the thread that loads
+     * the snapshot and then polls for new rows.
+     */
+    public synchronized void start() {
+        if (poller != null) {
+            return;
+        }
+
+        DataAccessObject.instance().addPersonListener(this);
+        running = true;
+        poller = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                runPoller();
+            }
+        }, "dbfun-snapshot-poller");
+        poller.setDaemon(true);
+        poller.start();
+    }
+
+    /**
+     * Stops the poller.
+     */
+    public synchronized void stop() {
+        if (poller == null) {
+            return;
+        }
+
+        running = false;
+        poller.interrupt();
+
+        try {
+            poller.join(pollMillis + 1000L);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+
+        poller = null;
+    }
+
+    /**
+     * @return {@code true} if the snapshot has been loaded.
+     */
+    public boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * Returns the person with the given ID.
+     *
+     * @param id the ID of the person.
+     * @return the person or {@code null} if the snapshot does not have it.
+     */
+    public Person get(int id) {
+        Version version = current.get();
+        int index = version.indexOf(id);
+        readCount.incrementAndGet();
+        return index >= 0 ? version.get(index) : null;
+    }
+
+    /**
+     * Returns at most {@code limit} persons with IDs larger than
+     * {@code afterId} in ascending ID order.
+     *
+     * @param afterId the ID after which to start.
+     * @param limit   the maximum number of persons to return.
+     * @return the persons.
+     */
+    public List<Person> getAfter(int afterId, int limit) {
+        Version version = current.get();
+        int index = version.indexOf(afterId);
+        int from = index >= 0 ? index + 1 : -index - 1;
+        int to = (int) Math.min((long) from + limit, version.size);
+        List<Person> persons = new ArrayList<>(Math.max(0, to - from));
+
+        for (int i = from; i < to; ++i) {
+            persons.add(version.get(i));
+        }
+
+        readCount.incrementAndGet();
+        return persons;
+    }
+
+    /**
+     * Returns at most {@code limit} persons with IDs smaller than
+     * {@code beforeId} in descending ID order.
+     *
+     * @param beforeId the ID before which to start.
+     * @param limit    the maximum number of persons to return.
+     * @return the persons.
+     */
+    public List<Person> getBefore(int beforeId, int limit) {
+        Version version = current.get();
+        int index = version.indexOf(beforeId);
+        int from = (index >= 0 ? index : -index - 1) - 1;
+        int to = Math.max(-1, from - limit);
+        List<Person> persons = new ArrayList<>(Math.max(0, from - to));
+
+        for (int i = from; i > to; --i) {
+            persons.add(version.get(i));
+        }
+
+        readCount.incrementAndGet();
+        return persons;
+    }
+
+    /**
+     * @return all the persons in ascending ID order.
+     */
+    public List<Person> getAll() {
+        Version version = current.get();
+        List<Person> persons = new ArrayList<>(version.size);
+
+        for (int i = 0; i < version.size; ++i) {
+            persons.add(version.get(i));
+        }
+
+        readCount.incrementAndGet();
+        return persons;
+    }
+
+    /**
+     * Passes all the persons to the handler in ascending ID order.
+     *
+     * @param handler the handler.
+     * @throws IOException if the handler fails.
+     */
+    public void forEach(PersonHandler handler) throws IOException {
+        Version version = current.get();
+        readCount.incrementAndGet();
+
+        for (int i = 0; i < version.size; ++i) {
+            handler.handle(version.get(i));
+        }
+    }
+
+    /**
+     * @return the number of rows in the snapshot.
+     */
+    public int size() {
+        return current.get().size;
+    }
+
+    /**
+     * @return the number of bytes taken by the arrays of the snapshot.
+     */
+    public long getFootprintBytes() {
+        return current.get().getFootprintBytes();
+    }
+
+    /**
+     * @return the number of milliseconds since the start of the last
+     *         successful refresh, or -1 if the snapshot is not loaded.
+     */
+    public long getStalenessMillis() {
+        return ready ? System.currentTimeMillis() - lastRefreshMillis : -1L;
+    }
+
+    /**
+     * @return the number of reads served from the snapshot.
+     */
+    public long getReadCount() {
+        return readCount.get();
+    }
+
+    /**
+     * Applies an update of an already seen row right away and makes the
+     * poller fetch a new row.
+     *
+     * @param person the saved person.
+     */
+    @Override
+    public void personSaved(Person person) {
+        synchronized (writeLock) {
+            if (!ready) {
+                savedWhileLoading.add(person.getId());
+                return;
+            }
+
+            int shard = DataAccessObject.shardOfId(person.getId());
+
+            if (person.getId() <= lastSeenIds[shard]) {
+                apply(person);
+                publish();
+                return;
+            }
+
+            // The poller may be reading an older version of the row.
+            savedAhead.get(shard).put(person.getId(), person);
+        }
+
+        synchronized (pollSignal) {
+            pollRequested = true;
+            pollSignal.notifyAll();
+        }
+    }
+
+    private void runPoller() {
+        while (running && !ready) {
+            try {
+                load();
+            } catch (IOException | RuntimeException ex) {
+                LOGGER.log(Level.SEVERE, "Cannot load the snapshot.", ex);
+                sleep(pollMillis);
+            }
+        }
+
+        while (running) {
+            synchronized (pollSignal) {
+                if (!pollRequested) {
+                    try {
+                        pollSignal.wait(pollMillis);
+                    } catch (InterruptedException ex) {
+                        return;
+                    }
+                }
+
+                pollRequested = false;
+            }
+
+            try {
+                poll();
+            } catch (RuntimeException ex) {
+                LOGGER.log(Level.WARNING, "Cannot refresh the snapshot.", ex);
+                sleep(pollMillis);
+            }
+        }
+    }
+
+    /**
+     * Loads the snapshot with a streaming scan.
+     *
+     * @throws IOException never in practice.
+     */
+    private void load() throws IOException {
+        long start = System.currentTimeMillis();
+        final List<Person> batch = new ArrayList<>(pollBatch);
+
+        synchronized (writeLock) {
+            current.set(Version.EMPTY);
+            pending = false;
+            savedWhileLoading.clear();
+        }
+
+        DataAccessObject.instance().scanAllUsers(new PersonHandler() {
+            @Override
+            public void handle(Person person) {
+                batch.add(person);
+
+                if (batch.size() == pollBatch) {
+                    applyAll(batch);
+                    batch.clear();
+                }
+            }
+        });
+
+        applyAll(batch);
+        Collection<Integer> dirtyIds;
+
+        synchronized (writeLock) {
+            dirtyIds = new ArrayList<>(savedWhileLoading);
+            savedWhileLoading.clear();
+            Version version = current.get();
+            lastSeenIds = new int[DataAccessObject.getShardCount()];
+            savedAhead = new ArrayList<>(lastSeenIds.length);
+
+            for (int shard = 0; shard < lastSeenIds.length; ++shard) {
+                savedAhead.add(new TreeMap<Integer, Person>());
+            }
+
+            for (int i = 0; i < version.size; ++i) {
+                int id = version.ids[i];
+                int shard = DataAccessObject.shardOfId(id);
+                lastSeenIds[shard] = Math.max(lastSeenIds[shard], id);
+            }
+
+            lastRefreshMillis = start;
+            ready = true;
+        }
+
+        if (!dirtyIds.isEmpty()) {
+            Map<Integer, Person> persons =
+                    DataAccessObject.instance().loadUsersByIds(dirtyIds);
+            applyAll(persons.values());
+        }
+
+        LOGGER.log(Level.INFO,
+                   "Loaded {0} persons into the snapshot in {1} ms, " +
+                   "taking {2} bytes.",
+                   new Object[]{ String.valueOf(size()),
+                                 System.currentTimeMillis() - start,
+                                 String.valueOf(getFootprintBytes()) });
+    }
+
+    /**
+     * Fetches the rows of each shard with IDs larger than the largest one 
+     * seen from the shard. The rows saved through {@link DataAccessObject}
+     * that the poller has caught up with are applied after the fetched ones,
+     * and the table version is advanced if any of the fetched rows was not
+     * saved through it.
+     */
+    private void poll() {
+        long start = System.currentTimeMillis();
+        boolean foreignRows = false;
+        int shardCount;
+
+        synchronized (writeLock) {
+            shardCount = lastSeenIds.length;
+        }
+
+        for (int shard = 0; shard < shardCount && running; ++shard) {
+            List<Person> persons;
+
+            do {
+                int lastSeenId;
+
+                synchronized (writeLock) {
+                    lastSeenId = lastSeenIds[shard];
+                }
+
+                persons = DataAccessObject.instance()
+                                          .loadShardUsersAfter(shard,
+                                                               lastSeenId,
+                                                               pollBatch);
+
+                if (!persons.isEmpty()) {
+                    foreignRows |= applyPolled(shard, persons);
+                }
+            } while (persons.size() == pollBatch && running);
+        }
+
+        if (foreignRows) {
+            DataAccessObject.instance().tableChanged();
+        }
+
+        lastRefreshMillis = start;
+    }
+
+    /**
+     * Applies a batch of polled rows of a shard, advances the largest ID seen
+     * from the shard and then applies the rows saved through 
+     * {@link DataAccessObject} up to that ID.
+     *
+     * @param shard   the shard.
+     * @param persons the polled rows in ascending ID order.
+     * @return {@code true} if some of the polled rows were not saved through
+     *         {@link DataAccessObject}.
+     */
+    private boolean applyPolled(int shard, List<Person> persons) {
+        boolean foreignRows = false;
+
+        synchronized (writeLock) {
+            NavigableMap<Integer, Person> ahead = savedAhead.get(shard);
+
+            for (Person person : persons) {
+                foreignRows |= !ahead.containsKey(person.getId());
+                apply(person);
+            }
+
+            lastSeenIds[shard] = persons.get(persons.size() - 1).getId();
+            Map<Integer, Person> caughtUp =
+                    ahead.headMap(lastSeenIds[shard], true);
+
+            for (Person person : caughtUp.values()) {
+                apply(person);
+            }
+
+            caughtUp.clear();
+            publish();
+        }
+
+        return foreignRows;
+    }
+
+    private void applyAll(Collection<Person> persons) {
+        if (persons.isEmpty()) {
+            return;
+        }
+
+        synchronized (writeLock) {
+            for (Person person : persons) {
+                apply(person);
+            }
+
+            publish();
+        }
+    }
+
+    /**
+     * Inserts or updates a row. Must be called while holding the write lock.
+     *
+     * @param person the person to store.
+     */
+    private void apply(Person person) {
+        Version version = current.get();
+
+        if (!pending) {
+            rowsCopied = false;
+            size = version.size;
+            ids = version.ids;
+            offsets = version.offsets;
+            strings = version.strings;
+            stringsLength = version.stringsLength;
+            created = version.created;
+        }
+
+        int index = Arrays.binarySearch(ids, 0, size, person.getId());
+        long createdMillis = person.getCreated() != null ?
+                             person.getCreated().getTime() :
+                             NO_DATE;
+
+        if (index >= 0) {
+            if (createdMillis == NO_DATE) {
+                createdMillis = created[index];
+            }
+
+            if (index < version.size && !rowsCopied) {
+                // The row is visible to the readers; change a copy.
+                copyRows(ids.length);
+            }
+        } else {
+            index = -index - 1;
+            ensureRowCapacity(size + 1, index < size);
+            System.arraycopy(ids, index, ids, index + 1, size - index);
+            System.arraycopy(offsets, OFFSETS_PER_ROW * index,
+                             offsets, OFFSETS_PER_ROW * (index + 1),
+                             OFFSETS_PER_ROW * (size - index));
+            System.arraycopy(created, index, created, index + 1,
+                             size - index);
+            size++;
+        }
+
+        ids[index] = person.getId();
+        created[index] = createdMillis;
+        int offset = OFFSETS_PER_ROW * index;
+        offsets[offset] = appendString(person.getFirstName());
+        offsets[offset + 1] = appendString(person.getLastName());
+        offsets[offset + 2] = appendString(person.getEmail());
+        offsets[offset + 3] = stringsLength;
+        pending = true;
+    }
+
+    /**
+     * Makes sure the row arrays have room for the given number of rows. The
+     * arrays are copied if they are too small or if a published row is about
+     * to move.
+     */
+    private void ensureRowCapacity(int rows, boolean shifting) {
+        if (rows > ids.length) {
+            copyRows(Math.max(rows, ids.length + (ids.length >> 1) + 16));
+        } else if (shifting && !rowsCopied) {
+            copyRows(ids.length);
+        }
+    }
+
+    private void copyRows(int capacity) {
+        ids = Arrays.copyOf(ids, capacity);
+        offsets = Arrays.copyOf(offsets, OFFSETS_PER_ROW * capacity);
+        created = Arrays.copyOf(created, capacity);
+        rowsCopied = true;
+    }
+
+    private int appendString(String string) {
+        int start = stringsLength;
+        byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+
+        if (stringsLength + bytes.length > strings.length) {
+            strings = Arrays.copyOf(
+                    strings,
+                    Math.max(stringsLength + bytes.length,
+                             strings.length + (strings.length >> 1) + 1024));
+        }
+
+        System.arraycopy(bytes, 0, strings, stringsLength, bytes.length);
+        stringsLength += bytes.length;
+        return start;
+    }
+
+    /**
+     * Publishes the writer state. Must be called while holding the write
+     * lock.
+     */
+    private void publish() {
+        if (pending) {
+            current.set(new Version(size, ids, offsets, strings,
+                                    stringsLength, created));
+            pending = false;
+        }
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * An immutable version of the snapshot. The arrays may be longer than
+     * needed and shared with the later versions, which only write beyond the
+     * lengths of this one.
+     */
+    private static final class Version {
+
+        static final Version EMPTY =
+                new Version(0, new int[0], new int[0], new byte[0], 0,
+                            new long[0]);
+
+        final int size;
+        final int[] ids;
+        final int[] offsets;
+        final byte[] strings;
+        final int stringsLength;
+        final long[] created;
+
+        Version(int size,
+                int[] ids,
+                int[] offsets,
+                byte[] strings,
+                int stringsLength,
+                long[] created) {
+            this.size = size;
+            this.ids = ids;
+            this.offsets = offsets;
+            this.strings = strings;
+            this.stringsLength = stringsLength;
+            this.created = created;
+        }
+
+        int indexOf(int id) {
+            return Arrays.binarySearch(ids, 0, size, id);
+        }
+
+        Person get(int index) {
+            int offset = OFFSETS_PER_ROW * index;
+            return Person.fromTrustedRow(
+                    ids[index],
+                    string(offsets[offset], offsets[offset + 1]),
+                    string(offsets[offset + 1], offsets[offset + 2]),
+                    string(offsets[offset + 2], offsets[offset + 3]),
+                    created[index] == NO_DATE ?
+                            null :
+                            new Date(created[index]));
+        }
+
+        long getFootprintBytes() {
+            return 4L * ids.length + 4L * offsets.length + strings.length +
+                   8L * created.length;
+        }
+
+        private String string(int from, int to) {
+            return new String(strings, from, to - from,
+                              StandardCharsets.UTF_8);
+        }
+    }
+}
@@ -0,0 +1,448 @@
+package net.coderodde.dbfun.controllers;
+
+import java.text.SimpleDateFormat;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * This class keeps the number of persons in memory, in total, per domain of
+ * the email address and per day of creation, so that reading them never
+ * touches the database.
+ *
+ * <p>The counters are loaded with grouped counts over the rows of each shard
+ * up to its largest ID at the time, and every person saved through
+ * {@link DataAccessObject} with a larger ID in his/her shard is added as it
+ * is saved. A person
+ * is counted once even if he/she is saved again by an upsert. A person saved
+ * without a creation time is counted under the current day, which is what
+ * the database fills in. Every {@code DBFUN_STATS_RECONCILE_MILLIS} the
+ * counters are loaded again, which corrects the persons added by other
+ * processes or in batches whose IDs the driver did not report.
+ *
+ * @author Rodion "rodde" Efremov
+ * @version 1.7 (Oct 18, 2026)
+ */
+public final class PersonStatistics implements PersonListener {
+
+    private static final Logger LOGGER =
+            Logger.getLogger(PersonStatistics.class.getName());
+
+    /**
+     * Whether the statistics are kept.
+     */
+    static final boolean ENABLED =
+            Configuration.getBoolean("DBFUN_STATS", true);
+
+    /**
+     * The time between two attempts to load the counters until they load.
+     */
+    private static final long RETRY_MILLIS = 5000L;
+
+    /**
+     * Orders the counts by descending count and then by key.
+     */
+    private static final Comparator<Map.Entry<String, Long>> BY_COUNT =
+            new Comparator<Map.Entry<String, Long>>() {
+        @Override
+        public int compare(Map.Entry<String, Long> entry1,
+                           Map.Entry<String, Long> entry2) {
+            int comparison = Long.compare(entry2.getValue(),
+                                          entry1.getValue());
+            return comparison != 0 ?
+                   comparison :
+                   entry1.getKey().compareTo(entry2.getKey());
+        }
+    };
+
+    /**
+     * Holds the statistics. Created on first use.
+     */
+    private static final class Holder {
+        static final PersonStatistics INSTANCE = new PersonStatistics(
+                Configuration.getLong("DBFUN_STATS_RECONCILE_MILLIS",
+                                      300000L));
+    }
+
+    private final long reconcileMillis;
+    private final AtomicLong reconcileCount = new AtomicLong();
+
+    // The state below is guarded by this.
+
+    private Counts counts = new Counts();
+
+    /**
+     * The largest ID of each shard covered by the grouped counts. Only the IDs
+     * within a shard grow in the order the persons are inserted.
+     */
+    private int[] baseIds = new int[1];
+
+    /**
+     * The IDs of each shard above its base ID counted since, as local IDs
+     * offset by the local base ID + 1.
+     */
+    private BitSet[] countedIds = { new BitSet() };
+
+    /**
+     * The persons saved while the counters are being loaded, or {@code null}
+     * if they are not.
+     */
+    private List<Saved> savedWhileLoading;
+
+    private final SimpleDateFormat dayFormat =
+            new SimpleDateFormat("yyyy-MM-dd", Locale.ROOT);
+
+    private volatile boolean ready;
+    private volatile boolean running;
+    private volatile long lastReconciledMillis;
+    private volatile long lastDrift;
+    private Thread reconciler;
+
+    PersonStatistics(long reconcileMillis) {
+        this.reconcileMillis = Math.max(1000L, reconcileMillis);
+    }
+
+    public static PersonStatistics instance() {
+        return Holder.INSTANCE;
+    }
+
+    /**
+     * Returns the statistics if they are kept and loaded.
+     *
+     * @return the statistics or {@code null}.
+     */
+    static PersonStatistics getIfReady() {
+        if (!ENABLED) {
+            return null;
+        }
+
+        PersonStatistics statistics = instance();
+        return statistics.ready ? statistics : null;
+    }
+
+    /**
+     * Starts listening to the saved persons and starts the thread that loads
+     * the counters and then reconciles them.
+     */
+    public synchronized void start() {
+        if (reconciler != null) {
+            return;
+        }
+
+        DataAccessObject.instance().addPersonListener(this);
+        running = true;
+        reconciler = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                runReconciler();
+            }
+        }, "dbfun-stats-reconciler");
+        reconciler.setDaemon(true);
+        reconciler.start();
+    }
+
+    /**
+     * Stops the reconciler.
+     */
+    public synchronized void stop() {
+        if (reconciler == null) {
+            return;
+        }
+
+        running = false;
+        reconciler.interrupt();
+
+        try {
+            reconciler.join(1000L);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+
+        reconciler = null;
+    }
+
+    /**
+     * @return {@code true} if the counters have been loaded.
+     */
+    public boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * @return the number of persons.
+     */
+    public synchronized long getTotal() {
+        return counts.total;
+    }
+
+    /**
+     * Returns the numbers of persons of the domains with the most persons.
+     *
+     * @param limit the maximum number of domains to return.
+     * @return the numbers of persons keyed by the lower-cased domains, in
+     *         descending order of the numbers.
+     */
+    public Map<String, Long> getCountsByDomain(int limit) {
+        List<Map.Entry<String, Long>> entries;
+
+        // Copy the values, since the counters change once the lock is gone.
+        synchronized (this) {
+            entries = new ArrayList<>(counts.byDomain.size());
+
+            for (Map.Entry<String, Counter> entry :
+                    counts.byDomain.entrySet()) {
+                entries.add(new AbstractMap.SimpleImmutableEntry<>(
+                        entry.getKey(), entry.getValue().value));
+            }
+        }
+
+        Collections.sort(entries, BY_COUNT);
+        Map<String, Long> result = new LinkedHashMap<>();
+
+        for (Map.Entry<String, Long> entry : entries) {
+            if (result.size() >= limit) {
+                break;
+            }
+
+            result.put(entry.getKey(), entry.getValue());
+        }
+
+        return result;
+    }
+
+    /**
+     * @return the number of domains.
+     */
+    public synchronized int getDomainCount() {
+        return counts.byDomain.size();
+    }
+
+    /**
+     * Returns the numbers of persons created per day. The persons without a
+     * creation time are left out.
+     *
+     * @return the numbers of persons keyed by the days, formatted like
+     *         {@code 2017-08-11}, in ascending order of the days.
+     */
+    public synchronized SortedMap<String, Long> getCountsByDay() {
+        SortedMap<String, Long> result = new TreeMap<>();
+
+        for (Map.Entry<String, Counter> entry : counts.byDay.entrySet()) {
+            result.put(entry.getKey(), entry.getValue().value);
+        }
+
+        return result;
+    }
+
+    /**
+     * @return the time the counters were last loaded in milliseconds since
+     *         the epoch, 0 if never.
+     */
+    public long getLastReconciledMillis() {
+        return lastReconciledMillis;
+    }
+
+    /**
+     * @return the number of times the counters have been loaded.
+     */
+    long getReconcileCount() {
+        return reconcileCount.get();
+    }
+
+    /**
+     * @return the total counted incrementally minus the total loaded at the
+     *         last reconciliation.
+     */
+    long getLastDrift() {
+        return lastDrift;
+    }
+
+    /**
+     * Counts a saved person unless already counted.
+     *
+     * @param person the saved person.
+     */
+    @Override
+    public synchronized void personSaved(Person person) {
+        Date created = person.getCreated();
+        String email = person.getEmail();
+        Saved saved = new Saved(person.getId(),
+                                getDomain(email == null ? "" : email),
+                                dayFormat.format(created == null ?
+                                                 new Date() :
+                                                 created));
+
+        if (savedWhileLoading != null) {
+            savedWhileLoading.add(saved);
+        }
+
+        if (ready) {
+            count(saved);
+        }
+    }
+
+    /**
+     * Returns the domain of an email address the way the database groups it.
+     *
+     * @param email the email address.
+     * @return the lower-cased part after the first {@code @}.
+     */
+    static String getDomain(String email) {
+        return email.substring(email.indexOf('@') + 1).toLowerCase(Locale.ROOT);
+    }
+
+    private void runReconciler() {
+        while (running) {
+            try {
+                reconcile();
+            } catch (RuntimeException ex) {
+                LOGGER.log(Level.WARNING,
+                           "Loading the person statistics failed.", ex);
+            }
+
+            try {
+                Thread.sleep(ready ? reconcileMillis : RETRY_MILLIS);
+            } catch (InterruptedException ex) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Loads the counters from the database and replaces the current ones.
+     */
+    private void reconcile() {
+        synchronized (this) {
+            savedWhileLoading = new ArrayList<>();
+        }
+
+        try {
+            DataAccessObject dao = DataAccessObject.instance();
+            int[] maxIds = dao.getMaxIds();
+            Counts loaded = new Counts();
+
+            for (Map.Entry<String, Long> entry :
+                    dao.countUsersByDomain(maxIds).entrySet()) {
+                loaded.byDomain.put(entry.getKey(),
+                                    new Counter(entry.getValue()));
+                loaded.total += entry.getValue();
+            }
+
+            for (Map.Entry<String, Long> entry :
+                    dao.countUsersByDay(maxIds).entrySet()) {
+                if (entry.getKey() != null) {
+                    loaded.byDay.put(entry.getKey(),
+                                     new Counter(entry.getValue()));
+                }
+            }
+
+            synchronized (this) {
+                lastDrift = ready ? counts.total - loaded.total : 0L;
+                counts = loaded;
+                baseIds = maxIds;
+                countedIds = new BitSet[maxIds.length];
+
+                for (int shard = 0; shard < maxIds.length; ++shard) {
+                    countedIds[shard] = new BitSet();
+                }
+
+                for (Saved saved : savedWhileLoading) {
+                    count(saved);
+                }
+
+                ready = true;
+            }
+
+            lastReconciledMillis = System.currentTimeMillis();
+            reconcileCount.incrementAndGet();
+        } finally {
+            synchronized (this) {
+                savedWhileLoading = null;
+            }
+        }
+    }
+
+    /**
+     * Counts a saved person if he/she has an ID above the grouped counts of
+     * his/her shard and has not been counted yet. Called with the lock held.
+     *
+     * @param saved the saved person.
+     */
+    private void count(Saved saved) {
+        int shard = DataAccessObject.shardOfId(saved.id);
+
+        if (saved.id <= baseIds[shard]) {
+            return;
+        }
+
+        int index = DataAccessObject.toLocalId(saved.id) - 
+                    DataAccessObject.toLocalId(baseIds[shard]) - 1;
+
+        if (countedIds[shard].get(index)) {
+            return;
+        }
+
+        countedIds[shard].set(index);
+        counts.total++;
+        increment(counts.byDomain, saved.domain);
+        increment(counts.byDay, saved.day);
+    }
+
+    private static void increment(Map<String, Counter> counters, String key) {
+        Counter counter = counters.get(key);
+
+        if (counter == null) {
+            counters.put(key, new Counter(1L));
+        } else {
+            counter.value++;
+        }
+    }
+
+    /**
+     * The counters.
+     */
+    private static final class Counts {
+        long total;
+        final Map<String, Counter> byDomain = new HashMap<>();
+        final Map<String, Counter> byDay = new HashMap<>();
+    }
+
+    /**
+     * A mutable count.
+     */
+    private static final class Counter {
+        long value;
+
+        Counter(long value) {
+            this.value = value;
+        }
+    }
+
+    /**
+     * The keys of a saved person.
+     */
+    private static final class Saved {
+        final int id;
+        final String domain;
+        final String day;
+
+        Saved(int id, String domain, String day) {
+            this.id = id;
+            this.domain = domain;
+            this.day = day;
+        }
+    }
+}
@@ -0,0 +1,218 @@
+package net.coderodde.dbfun.controllers;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.servlet.AsyncContext;
+import javax.servlet.ServletException;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.annotation.WebServlet;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * This controller streams the saved persons as Server-Sent Events. Each
+ * event is of type {@code person}, carries the person as JSON and has an ID
+ * a client can resume from: after a reconnect the browser sends it in the
+ * {@code Last-Event-ID} header, and a new client may pass it as
+ * {@code /show/stream?after=ID}. The event ID holds the largest person ID
+ * seen from each shard (see {@link PersonFeed}); a single person ID stands for
+ * every shard. The persons of each shard with larger IDs are then sent first,
+ * read page by page on the {@link DatabaseExecutor}, followed by the live
+ * events. A person saved while the missed ones are being sent may arrive
+ * twice, so the clients should key the persons by ID. At most
+ * {@code DBFUN_SSE_MAX_BACKFILL} missed persons are sent per connection; a
+ * client further behind is then disconnected and resumes from the last of
+ * them after its retry delay.
+ *
+ * <p>The live events are fanned out by {@link PersonFeed}.
+ *
+ * @author Rodion "rodde" Efremov
+ * @version 1.7 (Oct 18, 2026)
+ */
+@WebServlet(name = "PersonStreamController",
+            urlPatterns = {"/show/stream"},
+            asyncSupported = true)
+public class PersonStreamController extends HttpServlet {
+
+    private static final Logger LOGGER =
+            Logger.getLogger(PersonStreamController.class.getName());
+
+    /**
+     * The number of missed persons read per query.
+     */
+    private static final int BACKFILL_PAGE_SIZE = 1000;
+
+    /**
+     * The maximum number of missed persons sent per connection.
+     */
+    private static final int MAX_BACKFILL =
+            Math.max(1, Configuration.getInt("DBFUN_SSE_MAX_BACKFILL", 10000));
+
+    /**
+     * The time the browsers wait before reconnecting.
+     */
+    private static final long RETRY_MILLIS =
+            Configuration.getLong("DBFUN_SSE_RETRY_MILLIS", 3000L);
+
+    /**
+     * Handles the HTTP <code>GET</code> method.
+     *
+     * @param request  the servlet request.
+     * @param response the servlet response.
+     * @throws ServletException if a servlet-specific error occurs.
+     * @throws IOException if an I/O error occurs.
+     */
+    @Override
+    protected void doGet(HttpServletRequest request, HttpServletResponse response)
+            throws ServletException, IOException {
+        String lastIdString = request.getHeader("Last-Event-ID");
+
+        if (lastIdString == null || lastIdString.trim().isEmpty()) {
+            lastIdString = request.getParameter("after");
+        }
+
+        int[] lastIds = null;
+
+        if (lastIdString != null && !lastIdString.trim().isEmpty()) {
+            try {
+                lastIds = PersonFeed.parseEventId(lastIdString);
+            } catch (NumberFormatException ex) {
+                response.setStatus(HttpServletResponse.SC_BAD_REQUEST);
+                response.setContentType("text/plain;charset=UTF-8");
+
+                try (PrintWriter out = response.getWriter()) {
+                    out.println("Error: " + lastIdString +
+                                " is not a valid event ID.");
+                }
+
+                return;
+            }
+        }
+
+        response.setContentType("text/event-stream;charset=UTF-8");
+        response.setHeader("Cache-Control", "no-cache");
+
+        final AsyncContext asyncContext = request.startAsync();
+        asyncContext.setTimeout(0L);
+
+        if (lastIds == null) {
+            startStream(asyncContext, null);
+            return;
+        }
+
+        final int[] backfillIds = lastIds;
+        boolean accepted = DatabaseExecutor.instance().execute(new Runnable() {
+            @Override
+            public void run() {
+                startStream(asyncContext, backfillIds);
+            }
+        });
+
+        if (!accepted) {
+            DatabaseExecutor.sendUnavailable(response, 
+                                             "the database is too busy");
+            asyncContext.complete();
+        }
+    }
+
+    /**
+     * Subscribes the client to the feed, sends the missed persons and then
+     * hands the stream over to the feed.
+     *
+     * @param asyncContext the asynchronous context of the request.
+     * @param lastIds      the largest person ID the client has seen from
+     *                     each shard, or {@code null} if none.
+     */
+    private static void startStream(AsyncContext asyncContext, int[] lastIds) {
+        ServletOutputStream out;
+
+        try {
+            out = asyncContext.getResponse().getOutputStream();
+        } catch (IOException ex) {
+            asyncContext.complete();
+            return;
+        }
+
+        // Subscribe first, so that no person saved during the backfill is
+        // missed.
+        PersonFeed.Subscriber subscriber =
+                PersonFeed.instance().subscribe(asyncContext, out);
+
+        try {
+            out.write(("retry: " + RETRY_MILLIS + "\n\n")
+                      .getBytes(StandardCharsets.UTF_8));
+            boolean caughtUp = lastIds == null || backfill(lastIds, out);
+            out.flush();
+
+            if (!caughtUp) {
+                // The client resumes from the last person sent.
+                subscriber.close();
+                return;
+            }
+        } catch (IOException | RuntimeException ex) {
+            LOGGER.log(Level.FINE, "Sending the missed persons failed.", ex);
+            subscriber.close();
+            return;
+        }
+
+        out.setWriteListener(subscriber);
+    }
+
+    /**
+     * Writes the persons of each shard with IDs larger than the largest one
+     * the client has seen from the shard, at most {@code MAX_BACKFILL} of
+     * them.
+     *
+     * @param lastIds the largest person ID seen from each shard.
+     * @param out     the output stream, still in blocking mode.
+     * @return {@code false} if {@code MAX_BACKFILL} persons were written
+     *         before catching up.
+     * @throws IOException if the client has gone away.
+     */
+    private static boolean backfill(int[] lastIds, ServletOutputStream out)
+            throws IOException {
+        DataAccessObject dao = DataAccessObject.instance();
+        int remaining = MAX_BACKFILL;
+
+        for (int shard = 0; shard < lastIds.length; ++shard) {
+            while (true) {
+                if (remaining == 0) {
+                    return false;
+                }
+
+                int limit = Math.min(BACKFILL_PAGE_SIZE, remaining);
+                List<Person> persons = 
+                        dao.loadShardUsersAfter(shard, lastIds[shard], limit);
+
+                for (Person person : persons) {
+                    lastIds[shard] = person.getId();
+                    out.write(PersonFeed.encode(
+                            PersonFeed.formatEventId(lastIds), person));
+                }
+
+                remaining -= persons.size();
+
+                if (persons.size() < limit) {
+                    break;
+                }
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Returns a short description of the servlet.
+     *
+     * @return a String containing servlet description
+     */
+    @Override
+    public String getServletInfo() {
+        return "Streams the saved persons as Server-Sent Events.";
+    }
+}
@@ -0,0 +1,170 @@
+package net.coderodde.dbfun.controllers;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.TypeAdapter;
+import com.google.gson.TypeAdapterFactory;
+import com.google.gson.reflect.TypeToken;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
+import java.io.IOException;
+import java.util.Calendar;
+import java.util.Date;
+
+/**
+ * This class writes persons to JSON without reflection. The output is the
+ * same as that of the reflective adapter Gson would otherwise use: the fields
+ * {@code id}, {@code firstName}, {@code lastName}, {@code email} and
+ * {@code created} in this order, the {@code null} fields left out and the
+ * creation date formatted like {@code "Aug 11, 2017"}. The formatted dates are
+ * cached, so formatting a date seen recently allocates nothing.
+ *
+ * <p>Reading is left to the adapter Gson would otherwise use, so the adapter
+ * is registered through {@link #FACTORY}, which hands it that adapter.
+ *
+ * <p>The adapter is stateless apart from the cache and may be shared by any
+ * number of threads.
+ *
+ * @author Rodion "rodde" Efremov
+ * @version 1.7 (Oct 18, 2026)
+ */
+public final class PersonTypeAdapter extends TypeAdapter<Person> {
+
+    /**
+     * The English month abbreviations, as used by Gson's default format for
+     * {@code java.sql.Date} in English locales.
+     */
+    private static final String[] MONTHS = {
+        "Jan", "Feb", "Mar", "Apr", "May", "Jun",
+        "Jul", "Aug", "Sep", "Oct", "Nov", "Dec"
+    };
+
+    /**
+     * The number of formatted dates cached. A power of two.
+     */
+    private static final int DATE_CACHE_SIZE = 1024;
+
+    private static final long MILLIS_PER_DAY = 24L * 60L * 60L * 1000L;
+
+    /**
+     * The cached formatted dates, indexed by the day. The entries are
+     * immutable, so a racy read sees either a complete entry or none.
+     */
+    private final FormattedDate[] dateCache =
+            new FormattedDate[DATE_CACHE_SIZE];
+
+    /**
+     * The adapter the persons are read with.
+     */
+    private final TypeAdapter<Person> delegate;
+
+    /**
+     * Creates the adapters for the persons, reading them with the adapter
+     * Gson would otherwise use.
+     */
+    public static final TypeAdapterFactory FACTORY = new TypeAdapterFactory() {
+        @Override
+        @SuppressWarnings("unchecked")
+        public <T> TypeAdapter<T> create(Gson gson, TypeToken<T> type) {
+            if (type.getRawType() != Person.class) {
+                return null;
+            }
+
+            TypeAdapter<Person> delegate = (TypeAdapter<Person>)
+                    gson.getDelegateAdapter(this, type);
+            return (TypeAdapter<T>) new PersonTypeAdapter(delegate);
+        }
+    };
+
+    private PersonTypeAdapter(TypeAdapter<Person> delegate) {
+        this.delegate = delegate;
+    }
+
+    /**
+     * Creates a Gson instance serializing the persons with this adapter.
+     *
+     * @return a new Gson instance.
+     */
+    public static Gson newGson() {
+        return new GsonBuilder()
+                .registerTypeAdapterFactory(FACTORY)
+                .create();
+    }
+
+    @Override
+    public void write(JsonWriter out, Person person) throws IOException {
+        if (person == null) {
+            out.nullValue();
+            return;
+        }
+
+        out.beginObject();
+        out.name("id").value(person.getId());
+        writeString(out, "firstName", person.getFirstName());
+        writeString(out, "lastName", person.getLastName());
+        writeString(out, "email", person.getEmail());
+
+        if (person.getCreated() != null) {
+            out.name("created").value(format(person.getCreated()));
+        }
+
+        out.endObject();
+    }
+
+    /**
+     * Reads a person with the adapter Gson would otherwise use.
+     *
+     * @param in the reader.
+     * @return the person read.
+     * @throws IOException if reading fails.
+     */
+    @Override
+    public Person read(JsonReader in) throws IOException {
+        return delegate.read(in);
+    }
+
+    private static void writeString(JsonWriter out, String name, String value)
+            throws IOException {
+        if (value != null) {
+            out.name(name).value(value);
+        }
+    }
+
+    /**
+     * Formats a date, using the cache if possible.
+     *
+     * @param date the date to format.
+     * @return the formatted date.
+     */
+    String format(Date date) {
+        long millis = date.getTime();
+        int index = (int)(millis / MILLIS_PER_DAY) & (DATE_CACHE_SIZE - 1);
+        FormattedDate cached = dateCache[index];
+
+        if (cached != null && cached.millis == millis) {
+            return cached.text;
+        }
+
+        Calendar calendar = Calendar.getInstance();
+        calendar.setTime(date);
+        String text = MONTHS[calendar.get(Calendar.MONTH)] + " " +
+                      calendar.get(Calendar.DAY_OF_MONTH) + ", " +
+                      calendar.get(Calendar.YEAR);
+        dateCache[index] = new FormattedDate(millis, text);
+        return text;
+    }
+
+    /**
+     * A cache entry.
+     */
+    private static final class FormattedDate {
+
+        final long millis;
+        final String text;
+
+        FormattedDate(long millis, String text) {
+            this.millis = millis;
+            this.text = text;
+        }
+    }
+}
@@ -0,0 +1,345 @@
+package net.coderodde.dbfun.controllers;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * This class implements a bounded write-behind queue of persons. The accepted
+ * persons are stored by a background writer thread, which collects them into
+ * groups of at most {@code maxGroupSize} persons or whatever has arrived
+ * within {@code maxLatencyMillis} of the first person in the group, and
+ * inserts each group as one batch in one transaction.
+ *
+ * @author Rodion "rodde" Efremov
+ * @version 1.7 (Oct 18, 2026)
+ */
+public final class PersonWriteQueue {
+
+    private static final Logger LOGGER =
+            Logger.getLogger(PersonWriteQueue.class.getName());
+
+    /**
+     * How long the writer waits for the first person of a group before
+     * checking whether it should stop.
+     */
+    private static final long IDLE_POLL_MILLIS = 100L;
+
+    private final BlockingQueue<Person> queue;
+    private final int capacity;
+    private final int maxGroupSize;
+    private final long maxLatencyNanos;
+    private final Thread writer;
+    private volatile boolean running = true;
+
+    private final AtomicLong acceptedCount = new AtomicLong();
+    private final AtomicLong rejectedCount = new AtomicLong();
+
+    // The counters below are updated by the writer thread only.
+    private volatile long committedGroupCount;
+    private volatile long committedPersonCount;
+    private volatile long failedPersonCount;
+    private volatile int lastGroupSize;
+    private volatile int maxCommittedGroupSize;
+
+    public PersonWriteQueue(int capacity,
+                            int maxGroupSize,
+                            long maxLatencyMillis) {
+        this.capacity = capacity;
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        this.maxGroupSize = Math.max(1, maxGroupSize);
+        this.maxLatencyNanos = TimeUnit.MILLISECONDS.toNanos(maxLatencyMillis);
+        this.writer = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                write();
+            }
+        }, "dbfun-person-writer");
+        this.writer.setDaemon(true);
+        this.writer.start();
+    }
+
+    /**
+     * Accepts a person for writing unless the queue is full or shut down.
+     *
+     * @param person the person to write.
+     * @return {@code true} if the person was accepted.
+     */
+    public boolean offer(Person person) {
+        if (running && queue.offer(person)) {
+            acceptedCount.incrementAndGet();
+            return true;
+        }
+
+        rejectedCount.incrementAndGet();
+        return false;
+    }
+
+    /**
+     * Stops accepting persons and waits for the writer to store the ones
+     * already accepted.
+     *
+     * @param timeoutMillis the maximum time to wait.
+     */
+    public void shutdown(long timeoutMillis) {
+        running = false;
+
+        try {
+            writer.join(timeoutMillis);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+
+        if (writer.isAlive()) {
+            LOGGER.log(Level.WARNING,
+                       "The person writer did not finish in {0} ms; {1} " +
+                       "persons were not written.",
+                       new Object[]{ timeoutMillis, queue.size() });
+            writer.interrupt();
+            return;
+        }
+
+        // Pick up the persons that were offered while the writer was exiting.
+        List<Person> group = new ArrayList<>();
+        queue.drainTo(group);
+        commit(group);
+    }
+
+    /**
+     * Returns a snapshot of the statistics of this queue.
+     *
+     * @return the statistics.
+     */
+    public Statistics getStatistics() {
+        return new Statistics(queue.size(),
+                              capacity,
+                              acceptedCount.get(),
+                              rejectedCount.get(),
+                              committedGroupCount,
+                              committedPersonCount,
+                              failedPersonCount,
+                              lastGroupSize,
+                              maxCommittedGroupSize);
+    }
+
+    /**
+     * The body of the writer thread.
+     */
+    private void write() {
+        List<Person> group = new ArrayList<>(maxGroupSize);
+
+        while (running || !queue.isEmpty()) {
+            try {
+                Person first = queue.poll(IDLE_POLL_MILLIS,
+                                          TimeUnit.MILLISECONDS);
+
+                if (first == null) {
+                    continue;
+                }
+
+                group.add(first);
+                fillGroup(group, System.nanoTime() + maxLatencyNanos);
+            } catch (InterruptedException ex) {
+                queue.drainTo(group, maxGroupSize - group.size());
+                commit(group);
+                return;
+            }
+
+            commit(group);
+            group.clear();
+        }
+    }
+
+    /**
+     * Adds persons to the group until it is full or the deadline passes. No
+     * waiting is done once the queue is shutting down.
+     *
+     * @param group    the group to fill.
+     * @param deadline the time by which the group must be committed.
+     * @throws InterruptedException if the writer is interrupted.
+     */
+    private void fillGroup(List<Person> group, long deadline)
+            throws InterruptedException {
+        while (group.size() < maxGroupSize) {
+            queue.drainTo(group, maxGroupSize - group.size());
+
+            if (group.size() == maxGroupSize || !running) {
+                return;
+            }
+
+            long remaining = deadline - System.nanoTime();
+
+            if (remaining <= 0L) {
+                return;
+            }
+
+            Person next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+
+            if (next == null) {
+                return;
+            }
+
+            group.add(next);
+        }
+    }
+
+    private void commit(List<Person> group) {
+        if (group.isEmpty()) {
+            return;
+        }
+
+        int failed = 0;
+
+        try {
+            String[] errors = DataAccessObject.instance().addPersons(group);
+
+            for (int i = 0; i < errors.length; ++i) {
+                if (errors[i] != null) {
+                    failed++;
+                    LOGGER.log(Level.WARNING, "Could not write person {0}: {1}",
+                               new Object[]{ group.get(i), errors[i] });
+                }
+            }
+        } catch (RuntimeException ex) {
+            failed = group.size();
+            LOGGER.log(Level.SEVERE,
+                       "Could not write a group of " + group.size() +
+                       " persons.", ex);
+        }
+
+        committedGroupCount++;
+        committedPersonCount += group.size() - failed;
+        failedPersonCount += failed;
+        lastGroupSize = group.size();
+
+        if (maxCommittedGroupSize < group.size()) {
+            maxCommittedGroupSize = group.size();
+        }
+    }
+
+    /**
+     * This class holds a snapshot of the queue statistics.
+     */
+    public static final class Statistics {
+
+        private final int depth;
+        private final int capacity;
+        private final long acceptedCount;
+        private final long rejectedCount;
+        private final long committedGroupCount;
+        private final long committedPersonCount;
+        private final long failedPersonCount;
+        private final int lastGroupSize;
+        private final int maxGroupSize;
+
+        Statistics(int depth,
+                   int capacity,
+                   long acceptedCount,
+                   long rejectedCount,
+                   long committedGroupCount,
+                   long committedPersonCount,
+                   long failedPersonCount,
+                   int lastGroupSize,
+                   int maxGroupSize) {
+            this.depth = depth;
+            this.capacity = capacity;
+            this.acceptedCount = acceptedCount;
+            this.rejectedCount = rejectedCount;
+            this.committedGroupCount = committedGroupCount;
+            this.committedPersonCount = committedPersonCount;
+            this.failedPersonCount = failedPersonCount;
+            this.lastGroupSize = lastGroupSize;
+            this.maxGroupSize = maxGroupSize;
+        }
+
+        /**
+         * @return the number of persons waiting to be written.
+         */
+        public int getDepth() {
+            return depth;
+        }
+
+        /**
+         * @return the maximum number of persons waiting to be written.
+         */
+        public int getCapacity() {
+            return capacity;
+        }
+
+        /**
+         * @return the number of accepted persons.
+         */
+        public long getAcceptedCount() {
+            return acceptedCount;
+        }
+
+        /**
+         * @return the number of persons rejected due to a full queue.
+         */
+        public long getRejectedCount() {
+            return rejectedCount;
+        }
+
+        /**
+         * @return the number of committed groups.
+         */
+        public long getCommittedGroupCount() {
+            return committedGroupCount;
+        }
+
+        /**
+         * @return the number of persons written.
+         */
+        public long getCommittedPersonCount() {
+            return committedPersonCount;
+        }
+
+        /**
+         * @return the number of accepted persons that could not be written.
+         */
+        public long getFailedPersonCount() {
+            return failedPersonCount;
+        }
+
+        /**
+         * @return the size of the most recently committed group.
+         */
+        public int getLastGroupSize() {
+            return lastGroupSize;
+        }
+
+        /**
+         * @return the size of the largest committed group.
+         */
+        public int getMaxGroupSize() {
+            return maxGroupSize;
+        }
+
+        /**
+         * @return the average size of a committed group.
+         */
+        public double getAverageGroupSize() {
+            return committedGroupCount == 0L ?
+                   0.0 :
+                   (double)(committedPersonCount + failedPersonCount) /
+                           committedGroupCount;
+        }
+
+        @Override
+        public String toString() {
+            return "{depth=" + depth + ", capacity=" + capacity +
+                   ", acceptedCount=" + acceptedCount +
+                   ", rejectedCount=" + rejectedCount +
+                   ", committedGroupCount=" + committedGroupCount +
+                   ", committedPersonCount=" + committedPersonCount +
+                   ", failedPersonCount=" + failedPersonCount +
+                   ", lastGroupSize=" + lastGroupSize +
+                   ", maxGroupSize=" + maxGroupSize + "}";
+        }
+    }
+}
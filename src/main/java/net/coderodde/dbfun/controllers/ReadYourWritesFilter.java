@@ -0,0 +1,109 @@
+package net.coderodde.dbfun.controllers;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+import javax.servlet.Filter;
+import javax.servlet.FilterChain;
+import javax.servlet.FilterConfig;
+import javax.servlet.ServletException;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
+import javax.servlet.annotation.WebFilter;
+import javax.servlet.http.Cookie;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * This filter lets a client read its own writes when the reads go to
+ * replicas. A {@code POST} to one of the writing servlets sets a cookie
+ * holding the time until which the client's reads go to the primary,
+ * {@code DBFUN_READ_YOUR_WRITES_MILLIS} from now. The requests carrying an
+ * unexpired cookie are marked with {@link ReplicaRouter#setPrimaryReads}.
+ *
+ * @author Rodion "rodde" Efremov
+ * @version 1.7 (Oct 18, 2026)
+ */
+@WebFilter(filterName = "ReadYourWritesFilter",
+           urlPatterns = {"/*"},
+           asyncSupported = true)
+public class ReadYourWritesFilter implements Filter {
+
+    /**
+     * The name of the cookie holding the end of the window in milliseconds
+     * since the epoch.
+     */
+    static final String COOKIE_NAME = "dbfun-primary-until";
+
+    /**
+     * The length of the window after a write. Zero disables the filter.
+     */
+    private static final long WINDOW_MILLIS =
+            Configuration.getLong("DBFUN_READ_YOUR_WRITES_MILLIS", 5000L);
+
+    /**
+     * The paths of the servlets writing the person table.
+     */
+    private static final Set<String> WRITE_PATHS = new HashSet<>(
+            Arrays.asList("/add_person", "/add_persons", "/createdb"));
+
+    @Override
+    public void init(FilterConfig filterConfig) {}
+
+    @Override
+    public void doFilter(ServletRequest request,
+                         ServletResponse response,
+                         FilterChain chain)
+            throws IOException, ServletException {
+        if (WINDOW_MILLIS <= 0L || !(request instanceof HttpServletRequest)) {
+            chain.doFilter(request, response);
+            return;
+        }
+
+        HttpServletRequest httpRequest = (HttpServletRequest) request;
+        long now = System.currentTimeMillis();
+
+        if ("POST".equals(httpRequest.getMethod()) &&
+                WRITE_PATHS.contains(httpRequest.getServletPath())) {
+            Cookie cookie = new Cookie(COOKIE_NAME,
+                                       Long.toString(now + WINDOW_MILLIS));
+            cookie.setMaxAge((int)((WINDOW_MILLIS + 999L) / 1000L));
+            cookie.setHttpOnly(true);
+            String contextPath = httpRequest.getContextPath();
+            cookie.setPath(contextPath.isEmpty() ? "/" : contextPath);
+            ((HttpServletResponse) response).addCookie(cookie);
+        }
+
+        ReplicaRouter.setPrimaryReads(getPrimaryUntil(httpRequest) > now);
+
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            ReplicaRouter.setPrimaryReads(false);
+        }
+    }
+
+    @Override
+    public void destroy() {}
+
+    private static long getPrimaryUntil(HttpServletRequest request) {
+        Cookie[] cookies = request.getCookies();
+
+        if (cookies == null) {
+            return 0L;
+        }
+
+        for (Cookie cookie : cookies) {
+            if (COOKIE_NAME.equals(cookie.getName())) {
+                try {
+                    return Long.parseLong(cookie.getValue());
+                } catch (NumberFormatException ex) {
+                    return 0L;
+                }
+            }
+        }
+
+        return 0L;
+    }
+}
@@ -0,0 +1,159 @@
+package net.coderodde.dbfun.controllers;
+
+import com.google.gson.Gson;
+import com.google.gson.stream.JsonWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.List;
+import javax.servlet.ServletException;
+import javax.servlet.annotation.WebServlet;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * This controller implements the type-ahead search over the persons. 
+ * {@code /search?q=PREFIX&limit=N} lists at most {@code N} persons whose first
+ * or last name starts with {@code PREFIX}, ignoring case. The matching IDs
+ * are found in {@link PersonSearchIndex} and the persons are then read on the
+ * {@link DatabaseExecutor}, from the snapshot or the person cache if 
+ * possible. The index is only built if {@code DBFUN_SEARCH_INDEX} is 
+ * {@code true}; otherwise the response is {@code 404 Not Found}, and until
+ * the index is loaded it is {@code 503 Service Unavailable}.
+ * 
+ * @author Rodion "rodde" Efremov
+ * @version 1.7 (Oct 18, 2026)
+ */
+@WebServlet(name = "SearchController", 
+            urlPatterns = {"/search"}, 
+            asyncSupported = true)
+public class SearchController extends HttpServlet {
+
+    /**
+     * The number of persons listed when no limit is given.
+     */
+    private static final int DEFAULT_LIMIT = 10;
+    
+    /**
+     * The largest limit a client may ask for.
+     */
+    private static final int MAX_LIMIT = 100;
+    
+    private final Gson gson = PersonTypeAdapter.newGson();
+    
+    /**
+     * Runs {@link #search} on the database executor.
+     */
+    private final DatabaseExecutor.RequestHandler handler = 
+            new DatabaseExecutor.RequestHandler() {
+        
+        @Override
+        public void handle(HttpServletRequest request, 
+                           HttpServletResponse response) 
+                throws IOException {
+            search(request, response);
+        }
+    };
+
+    /**
+     * Handles the HTTP <code>GET</code> method.
+     *
+     * @param request  the servlet request.
+     * @param response the servlet response.
+     * @throws ServletException if a servlet-specific error occurs.
+     * @throws IOException if an I/O error occurs.
+     */
+    @Override
+    protected void doGet(HttpServletRequest request, HttpServletResponse response)
+            throws ServletException, IOException {
+        if (!PersonSearchIndex.ENABLED) {
+            long start = System.nanoTime();
+            response.setStatus(HttpServletResponse.SC_NOT_FOUND);
+            response.setContentType("text/plain;charset=UTF-8");
+            
+            try (PrintWriter out = response.getWriter()) {
+                out.println("Error: the search index is disabled.");
+            }
+            
+            Metrics.SEARCH_SERVLET.finished(start);
+            return;
+        }
+        
+        DatabaseExecutor.instance().dispatch(request, 
+                                             response, 
+                                             handler, 
+                                             Metrics.SEARCH_SERVLET);
+    }
+    
+    private void search(HttpServletRequest request, 
+                        HttpServletResponse response) throws IOException {
+        PersonSearchIndex index = PersonSearchIndex.instance();
+        
+        if (!index.isReady()) {
+            response.setStatus(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+            response.setHeader("Retry-After", "1");
+            response.setContentType("text/plain;charset=UTF-8");
+            
+            try (PrintWriter out = response.getWriter()) {
+                out.println("Error: the search index is still loading.");
+            }
+            
+            return;
+        }
+        
+        String prefix = request.getParameter("q");
+        String limitString = request.getParameter("limit");
+        int limit;
+        
+        try {
+            limit = limitString == null || limitString.isEmpty() ?
+                    DEFAULT_LIMIT :
+                    Integer.parseInt(limitString);
+        } catch (NumberFormatException ex) {
+            limit = -1;
+        }
+        
+        if (prefix == null || prefix.trim().isEmpty() || limit < 1) {
+            response.setStatus(HttpServletResponse.SC_BAD_REQUEST);
+            response.setContentType("text/plain;charset=UTF-8");
+            
+            try (PrintWriter out = response.getWriter()) {
+                out.println("Error: use /search?q=PREFIX&limit=N with a " + 
+                            "non-empty prefix and a positive limit.");
+            }
+            
+            return;
+        }
+        
+        List<Person> persons = index.search(prefix, 
+                                            Math.min(limit, MAX_LIMIT));
+        response.setContentType("application/json;charset=UTF-8");
+        
+        try (PrintWriter out = response.getWriter()) {
+            long serializeStart = System.nanoTime();
+            JsonWriter jsonWriter = new JsonWriter(out);
+            jsonWriter.beginArray();
+            
+            for (Person person : persons) {
+                gson.toJson(person, Person.class, jsonWriter);
+            }
+            
+            jsonWriter.endArray();
+            jsonWriter.flush();
+            out.println();
+            Metrics.SEARCH_SERVLET.serializedNanos(
+                    System.nanoTime() - serializeStart);
+            Metrics.SEARCH_SERVLET.addRows(persons.size());
+        }
+    }
+
+    /**
+     * Returns a short description of the servlet.
+     *
+     * @return a String containing servlet description
+     */
+    @Override
+    public String getServletInfo() {
+        return "Searches the persons by a prefix of their names.";
+    }
+}
@@ -1,8 +1,23 @@
 package net.coderodde.dbfun.controllers;
 
 import com.google.gson.Gson;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
 import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPOutputStream;
 import javax.servlet.ServletException;
 import javax.servlet.annotation.WebServlet;
 import javax.servlet.http.HttpServlet;
@@ -10,14 +25,143 @@ import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 
 /**
- * This controller is responsible for viewing persons.
+ * This controller is responsible for viewing persons. {@code /show} lists all
+ * the persons, {@code /show?limit=N&after=ID} lists at most {@code N} persons 
+ * with IDs larger than {@code ID} in ascending order and 
+ * {@code /show?limit=N&before=ID} lists at most {@code N} persons with IDs 
+ * smaller than {@code ID} in descending order. An empty {@code before} starts
+ * from the newest person.
+ * 
+ * <p>{@code /show?ids=1,5,9} lists the persons with the given IDs in the 
+ * given order, as does a {@code POST} to {@code /show} with a JSON array of
+ * IDs as the body and {@code application/json} as the content type. A missing
+ * person is listed as <code>{"id":5,"notFound":true}</code>.
+ * 
+ * <p>{@code /show/by-email/EMAIL} shows the person with the given email 
+ * address.
+ * 
+ * <p>The {@code GET} responses carry an {@code ETag} and a 
+ * {@code Last-Modified} header derived from the table version, and a
+ * conditional request for an unchanged table is answered with 
+ * {@code 304 Not Modified} without querying the database. The 
+ * {@code Cache-Control} header is {@code DBFUN_CACHE_CONTROL_LIST} for the 
+ * listings and {@code DBFUN_CACHE_CONTROL_PERSON} for single persons.
+ * 
+ * <p>The full listing is negotiated: with {@code Accept: application/cbor} 
+ * it is written in the compact binary format of {@link PersonCborWriter}, and
+ * with {@code Accept-Encoding: gzip} it is compressed while it streams, at
+ * level {@code DBFUN_GZIP_LEVEL} (by default the fastest one). The concurrent
+ * requests for the same representation share one query: the first one 
+ * encodes the listing into memory, and then each of them writes the bytes to
+ * its own client. A listing larger than 
+ * {@code DBFUN_SHARED_LISTING_MAX_BYTES} is streamed to each of them.
  * 
  * @author Rodion "rodde" Efremov
  * @version 1.6 (Aug 8, 2017)
  */
-@WebServlet(name = "ShowPersonController", urlPatterns = {"/show/*"})
+@WebServlet(name = "ShowPersonController", 
+            urlPatterns = {"/show/*"}, 
+            asyncSupported = true)
 public class ShowPersonController extends HttpServlet {
 
+    /**
+     * Runs {@link #processRequest} on the database executor.
+     */
+    private final DatabaseExecutor.RequestHandler handler = 
+            new DatabaseExecutor.RequestHandler() {
+        
+        @Override
+        public void handle(HttpServletRequest request, 
+                           HttpServletResponse response) 
+                throws ServletException, IOException {
+            processRequest(request, response);
+        }
+    };
+
+    /**
+     * Serializes the persons. Shared by all the requests.
+     */
+    private static final Gson GSON = PersonTypeAdapter.newGson();
+
+    /**
+     * The number of persons written between two checks for a disconnected 
+     * client.
+     */
+    private static final int CLIENT_CHECK_INTERVAL = 1000;
+    
+    /**
+     * The page size used when only a cursor is given.
+     */
+    private static final int DEFAULT_PAGE_SIZE = 100;
+    
+    /**
+     * The largest page size a client may ask for.
+     */
+    private static final int MAX_PAGE_SIZE = 
+            Configuration.getInt("DBFUN_MAX_PAGE_SIZE", 1000);
+    
+    /**
+     * The largest number of IDs a client may ask for at a time.
+     */
+    private static final int MAX_IDS = 
+            Configuration.getInt("DBFUN_MULTI_GET_MAX_IDS", 1000);
+    
+    /**
+     * The path prefix of the lookups by email address.
+     */
+    private static final String BY_EMAIL_PREFIX = "by-email/";
+    
+    /**
+     * The {@code Cache-Control} header of the listings.
+     */
+    private static final String LIST_CACHE_CONTROL = 
+            Configuration.getString("DBFUN_CACHE_CONTROL_LIST", "no-cache");
+    
+    /**
+     * The {@code Cache-Control} header of the single persons.
+     */
+    private static final String PERSON_CACHE_CONTROL = 
+            Configuration.getString("DBFUN_CACHE_CONTROL_PERSON", "no-cache");
+    
+    /**
+     * Whether the full listing may be compressed.
+     */
+    private static final boolean GZIP_ENABLED = 
+            Configuration.getBoolean("DBFUN_GZIP", true);
+    
+    /**
+     * The compression level from 1 (fastest) to 9 (smallest).
+     */
+    private static final int GZIP_LEVEL = 
+            Configuration.getInt("DBFUN_GZIP_LEVEL", Deflater.BEST_SPEED);
+    
+    /**
+     * The size of the buffer in front of the compressor.
+     */
+    private static final int BUFFER_SIZE = 8192;
+    
+    /**
+     * The largest encoded full listing kept in memory to be shared by the 
+     * concurrent requests for it.
+     */
+    private static final int SHARED_LISTING_MAX_BYTES = 
+            Configuration.getInt("DBFUN_SHARED_LISTING_MAX_BYTES", 16 << 20);
+    
+    /**
+     * Coalesces the concurrent requests for the same representation of the 
+     * full listing.
+     */
+    private static final SingleFlight<String, SharedListing> LISTING_FLIGHT = 
+            new SingleFlight<>("fullListing", 
+                               DataAccessObject.SINGLE_FLIGHT_MAX_WAIT_MILLIS);
+    
+    /**
+     * The representations of the full listing last found larger than 
+     * {@code SHARED_LISTING_MAX_BYTES}. They are streamed to each client 
+     * until a streamed one fits again.
+     */
+    private static final Set<String> OVERSIZED_VARIANTS = 
+            Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
 
     /**
      * Processes requests for both HTTP <code>GET</code> and <code>POST</code>
@@ -31,15 +175,30 @@ public class ShowPersonController extends HttpServlet {
     protected void processRequest(HttpServletRequest request, HttpServletResponse response)
             throws ServletException, IOException {
         response.setContentType("text/plain;charset=UTF-8");
+        
+        if ("GET".equals(request.getMethod())) {
+            // Taken before the query, so the tag is never newer than the data.
+            ConditionalGet.setHeaders(response, 
+                                      ConditionalGet.getETag(
+                                              getVariant(request)), 
+                                      getCacheControl(request));
+        }
+        
+        if (isFullListingRequest(request)) {
+            writeAllPersons(request, response);
+            return;
+        }
 
         try (PrintWriter out = response.getWriter()) {
             String path = request.getPathInfo();
             
             if (path == null || path.equals("/")) {
-                Gson gson = new Gson();
-                out.println(
-                        gson.toJson(
-                                DataAccessObject.instance().getAllUsers()));
+                if (isMultiGetRequest(request)) {
+                    writePersonsByIds(request, out);
+                } else {
+                    writePage(request, response, out);
+                }
+                
                 return;
             }
             
@@ -47,6 +206,12 @@ public class ShowPersonController extends HttpServlet {
                 path = path.substring(1);
             }
             
+            if (path.startsWith(BY_EMAIL_PREFIX)) {
+                writePersonByEmail(
+                        path.substring(BY_EMAIL_PREFIX.length()), out);
+                return;
+            }
+            
             String[] tokens = path.split("/");
             String idString = tokens[0];
             int id = -1;
@@ -77,8 +242,572 @@ public class ShowPersonController extends HttpServlet {
                 return;
             }
 
-            Gson gson = new Gson();
-            out.println(gson.toJson(person));
+            long serializeStart = System.nanoTime();
+            out.println(GSON.toJson(person));
+            Metrics.SHOW_PERSON_SERVLET.serializedNanos(
+                    System.nanoTime() - serializeStart);
+            Metrics.SHOW_PERSON_SERVLET.addRows(1);
+        }
+    }
+
+    /**
+     * Writes the person with the given email address as JSON.
+     * 
+     * @param email the email address.
+     * @param out   the writer to write to.
+     */
+    private static void writePersonByEmail(String email, PrintWriter out) {
+        if (email.isEmpty()) {
+            out.println("Error: no email address given.");
+            return;
+        }
+        
+        Person person = DataAccessObject.instance().getUserByEmail(email);
+        
+        if (person == null) {
+            out.println("Error: no person with email = " + email + ".");
+            return;
+        }
+        
+        long serializeStart = System.nanoTime();
+        out.println(GSON.toJson(person));
+        Metrics.SHOW_PERSON_SERVLET.serializedNanos(
+                System.nanoTime() - serializeStart);
+        Metrics.SHOW_PERSON_SERVLET.addRows(1);
+    }
+    
+    /**
+     * Returns the single flight coalescing the full listings.
+     * 
+     * @return the single flight.
+     */
+    static SingleFlight<?, ?> getListingFlight() {
+        return LISTING_FLIGHT;
+    }
+    
+    /**
+     * Writes all the persons as a JSON array or, if the client accepts it, in
+     * CBOR, compressed if the client accepts gzip. 
+     * 
+     * <p>The first of the concurrent requests for the same representation 
+     * encodes the listing into memory, without writing to its client, and the
+     * rest wait for it; then each of them writes the bytes to its own client,
+     * so a slow client holds up no one else. If the listing grows past 
+     * {@code SHARED_LISTING_MAX_BYTES}, the encoding is abandoned and each 
+     * request streams its own, as do the later requests for the 
+     * representation until a streamed listing fits again.
+     * 
+     * @param request  the servlet request.
+     * @param response the servlet response.
+     * @throws IOException if the client has gone away.
+     */
+    private static void writeAllPersons(HttpServletRequest request,
+                                        HttpServletResponse response) 
+            throws IOException {
+        final boolean cbor = acceptsCbor(request);
+        final boolean gzip = acceptsGzip(request);
+        final String variant = getVariant(request);
+        
+        response.setHeader("Vary", "Accept, Accept-Encoding");
+        
+        if (cbor) {
+            response.setContentType(PersonCborWriter.CONTENT_TYPE);
+        }
+        
+        if (gzip) {
+            response.setHeader("Content-Encoding", "gzip");
+        }
+        
+        if (!DataAccessObject.isSingleFlight() || 
+                SHARED_LISTING_MAX_BYTES <= 0) {
+            streamAllPersons(response.getOutputStream(), cbor, gzip);
+            return;
+        }
+        
+        if (OVERSIZED_VARIANTS.contains(variant)) {
+            CountingOutputStream out = 
+                    new CountingOutputStream(response.getOutputStream());
+            streamAllPersons(out, cbor, gzip);
+            
+            if (out.count <= SHARED_LISTING_MAX_BYTES) {
+                OVERSIZED_VARIANTS.remove(variant);
+            }
+            
+            return;
+        }
+        
+        final boolean[] loaded = new boolean[1];
+        SharedListing shared;
+        
+        try {
+            shared = LISTING_FLIGHT.execute(
+                    variant, 
+                    DataAccessObject.instance().getTableVersion(), 
+                    new Callable<SharedListing>() {
+                @Override
+                public SharedListing call() throws IOException {
+                    loaded[0] = true;
+                    BoundedOutputStream out = 
+                            new BoundedOutputStream(SHARED_LISTING_MAX_BYTES);
+                    int rows;
+                    
+                    try {
+                        rows = streamAllPersons(out, cbor, gzip);
+                    } catch (IOException ex) {
+                        if (!out.overflowed) {
+                            throw ex;
+                        }
+                        
+                        rows = 0;
+                    }
+                    
+                    if (out.overflowed) {
+                        OVERSIZED_VARIANTS.add(variant);
+                        return null;
+                    }
+                    
+                    return new SharedListing(out.toByteArray(), rows);
+                }
+            });
+        } catch (IOException | RuntimeException ex) {
+            throw ex;
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IOException(ex);
+        } catch (Exception ex) {
+            throw new IOException(ex);
+        }
+        
+        if (shared == null) {
+            streamAllPersons(response.getOutputStream(), cbor, gzip);
+            return;
+        }
+        
+        response.setContentLength(shared.bytes.length);
+        
+        try (OutputStream out = response.getOutputStream()) {
+            out.write(shared.bytes);
+        }
+        
+        if (!loaded[0]) {
+            // The loader has already counted the rows it encoded.
+            Metrics.SHOW_PERSON_SERVLET.addRows(shared.rows);
+        }
+    }
+    
+    /**
+     * Streams all the persons to the given stream and closes it. Each person 
+     * is written as soon as it is read from the database.
+     * 
+     * @param body the stream of the response body.
+     * @param cbor whether to write CBOR instead of JSON.
+     * @param gzip whether to compress the body.
+     * @return the number of persons written.
+     * @throws IOException if the client has gone away.
+     */
+    private static int streamAllPersons(OutputStream body, 
+                                         boolean cbor, 
+                                         boolean gzip) 
+            throws IOException {
+        try (OutputStream out = openOutputStream(body, gzip)) {
+            if (cbor) {
+                PersonCborWriter personWriter = new PersonCborWriter(out);
+                
+                personWriter.begin();
+                DataAccessObject.instance().streamAllUsers(personWriter);
+                personWriter.end();
+                
+                Metrics.SHOW_PERSON_SERVLET.serializedNanos(
+                        personWriter.getSerializeNanos());
+                Metrics.SHOW_PERSON_SERVLET.addRows(personWriter.getCount());
+                return personWriter.getCount();
+            } else {
+                PrintWriter writer = new PrintWriter(
+                        new OutputStreamWriter(out, StandardCharsets.UTF_8));
+                JsonPersonWriter personWriter = new JsonPersonWriter(writer);
+
+                personWriter.jsonWriter.beginArray();
+                DataAccessObject.instance().streamAllUsers(personWriter);
+                personWriter.jsonWriter.endArray();
+                personWriter.jsonWriter.flush();
+                writer.println();
+                writer.flush();
+
+                Metrics.SHOW_PERSON_SERVLET.serializedNanos(
+                        personWriter.serializeNanos);
+                Metrics.SHOW_PERSON_SERVLET.addRows(personWriter.count);
+                return personWriter.count;
+            }
+        }
+    }
+    
+    /**
+     * Opens the response body for writing, compressing it if asked to.
+     * 
+     * @param body the stream of the response body.
+     * @param gzip whether to compress the body.
+     * @return the buffered stream to write the body to.
+     * @throws IOException if an I/O error occurs.
+     */
+    private static OutputStream openOutputStream(OutputStream body,
+                                                 boolean gzip) 
+            throws IOException {
+        OutputStream out = body;
+        
+        if (gzip) {
+            out = new GZIPOutputStream(out, BUFFER_SIZE) {
+                {
+                    def.setLevel(GZIP_LEVEL);
+                }
+            };
+        }
+        
+        return new BufferedOutputStream(out, BUFFER_SIZE);
+    }
+    
+    /**
+     * Checks whether the request asks for the full listing.
+     * 
+     * @param request the servlet request.
+     * @return {@code true} if the request has neither a path, IDs nor 
+     *         pagination parameters.
+     */
+    private static boolean isFullListingRequest(HttpServletRequest request) {
+        String path = request.getPathInfo();
+        return (path == null || path.equals("/")) &&
+               !isMultiGetRequest(request) &&
+               !isPageRequest(request);
+    }
+    
+    /**
+     * Returns the suffix of the entity tag telling the representations of the
+     * same resource apart.
+     * 
+     * @param request the servlet request.
+     * @return the suffix, empty for the default representation.
+     */
+    private static String getVariant(HttpServletRequest request) {
+        if (!isFullListingRequest(request)) {
+            return "";
+        }
+        
+        return (acceptsCbor(request) ? "-cbor" : "") + 
+               (acceptsGzip(request) ? "-gzip" : "");
+    }
+    
+    private static boolean acceptsCbor(HttpServletRequest request) {
+        return accepts(request.getHeader("Accept"), 
+                       PersonCborWriter.CONTENT_TYPE);
+    }
+    
+    private static boolean acceptsGzip(HttpServletRequest request) {
+        return GZIP_ENABLED && 
+               accepts(request.getHeader("Accept-Encoding"), "gzip");
+    }
+    
+    /**
+     * Checks whether a header such as {@code Accept} lists the given value 
+     * with a non-zero quality.
+     * 
+     * @param header the value of the header or {@code null}.
+     * @param value  the value to look for.
+     * @return {@code true} if the value is acceptable.
+     */
+    private static boolean accepts(String header, String value) {
+        if (header == null) {
+            return false;
+        }
+        
+        for (String element : header.split(",")) {
+            String[] parameters = element.split(";");
+            
+            if (!parameters[0].trim().equalsIgnoreCase(value)) {
+                continue;
+            }
+            
+            for (int i = 1; i < parameters.length; ++i) {
+                String parameter = parameters[i].trim();
+                
+                if (parameter.startsWith("q=")) {
+                    try {
+                        return Double.parseDouble(parameter.substring(2)) > 0.0;
+                    } catch (NumberFormatException ex) {
+                        return false;
+                    }
+                }
+            }
+            
+            return true;
+        }
+        
+        return false;
+    }
+    
+    /**
+     * Checks whether the request asks for persons by their IDs.
+     * 
+     * @param request the servlet request.
+     * @return {@code true} if the request has the {@code ids} parameter or a
+     *         JSON body.
+     */
+    private static boolean isMultiGetRequest(HttpServletRequest request) {
+        if (request.getParameter("ids") != null) {
+            return true;
+        }
+        
+        String contentType = request.getContentType();
+        return "POST".equals(request.getMethod()) && 
+               contentType != null && 
+               contentType.startsWith("application/json");
+    }
+    
+    /**
+     * Writes the persons with the requested IDs as a JSON array in the order
+     * of the IDs. All the IDs not in the person cache are fetched with one 
+     * query per {@code DBFUN_MULTI_GET_CHUNK_SIZE} IDs.
+     * 
+     * @param request the servlet request.
+     * @param out     the writer to write to.
+     * @throws IOException if an I/O error occurs.
+     */
+    private static void writePersonsByIds(HttpServletRequest request,
+                                          PrintWriter out) throws IOException {
+        int[] ids;
+        
+        try {
+            String idsString = request.getParameter("ids");
+            ids = idsString != null ? 
+                  parseIds(idsString) : 
+                  readIds(request);
+        } catch (NumberFormatException ex) {
+            out.println("Error: " + ex.getMessage() + " is not an integer.");
+            return;
+        } catch (IOException | IllegalStateException ex) {
+            out.println("Error: the body is not a JSON array of IDs.");
+            return;
+        }
+        
+        if (ids == null) {
+            out.println("Error: at most " + MAX_IDS + 
+                        " IDs may be requested at a time.");
+            return;
+        }
+        
+        Person[] persons = DataAccessObject.instance().getUsersByIds(ids);
+        int found = 0;
+        long serializeStart = System.nanoTime();
+        JsonWriter jsonWriter = new JsonWriter(out);
+        
+        jsonWriter.beginArray();
+        
+        for (int i = 0; i < ids.length; ++i) {
+            if (persons[i] != null) {
+                GSON.toJson(persons[i], Person.class, jsonWriter);
+                found++;
+            } else {
+                jsonWriter.beginObject();
+                jsonWriter.name("id").value(ids[i]);
+                jsonWriter.name("notFound").value(true);
+                jsonWriter.endObject();
+            }
+        }
+        
+        jsonWriter.endArray();
+        jsonWriter.flush();
+        out.println();
+        
+        Metrics.SHOW_PERSON_SERVLET.serializedNanos(
+                System.nanoTime() - serializeStart);
+        Metrics.SHOW_PERSON_SERVLET.addRows(found);
+    }
+    
+    /**
+     * Parses a comma-separated list of IDs.
+     * 
+     * @param idsString the list of IDs.
+     * @return the IDs or {@code null} if there are more than {@code MAX_IDS}.
+     * @throws NumberFormatException with the offending value as the message.
+     */
+    private static int[] parseIds(String idsString) {
+        if (idsString.isEmpty()) {
+            return new int[0];
+        }
+        
+        String[] tokens = idsString.split(",", MAX_IDS + 1);
+        
+        if (tokens.length > MAX_IDS) {
+            return null;
+        }
+        
+        int[] ids = new int[tokens.length];
+        
+        for (int i = 0; i < tokens.length; ++i) {
+            try {
+                ids[i] = Integer.parseInt(tokens[i].trim());
+            } catch (NumberFormatException ex) {
+                throw new NumberFormatException(tokens[i]);
+            }
+        }
+        
+        return ids;
+    }
+    
+    /**
+     * Reads a JSON array of IDs from the request body.
+     * 
+     * @param request the servlet request.
+     * @return the IDs or {@code null} if there are more than {@code MAX_IDS}.
+     * @throws IOException if the body cannot be read or is malformed.
+     * @throws IllegalStateException if the body is not an array of integers.
+     * @throws NumberFormatException if an ID is not an integer.
+     */
+    private static int[] readIds(HttpServletRequest request) 
+            throws IOException {
+        JsonReader jsonReader = new JsonReader(request.getReader());
+        int[] ids = new int[16];
+        int count = 0;
+        
+        jsonReader.beginArray();
+        
+        while (jsonReader.hasNext()) {
+            if (count == MAX_IDS) {
+                return null;
+            }
+            
+            if (count == ids.length) {
+                ids = Arrays.copyOf(ids, Math.min(2 * count, MAX_IDS));
+            }
+            
+            ids[count++] = jsonReader.nextInt();
+        }
+        
+        jsonReader.endArray();
+        return Arrays.copyOf(ids, count);
+    }
+    
+    /**
+     * Checks whether the request asks for a page of persons.
+     * 
+     * @param request the servlet request.
+     * @return {@code true} if any of the pagination parameters is present.
+     */
+    private static boolean isPageRequest(HttpServletRequest request) {
+        return request.getParameter("limit") != null ||
+               request.getParameter("after") != null ||
+               request.getParameter("before") != null;
+    }
+    
+    /**
+     * Writes a page of persons as a JSON object holding the persons and the
+     * cursor of the next page, which is {@code null} on the last page. The 
+     * link to the next page is also sent in the {@code Link} header.
+     * 
+     * @param request  the servlet request.
+     * @param response the servlet response.
+     * @param out      the writer to write to.
+     * @throws IOException if an I/O error occurs.
+     */
+    private static void writePage(HttpServletRequest request,
+                                  HttpServletResponse response,
+                                  PrintWriter out) throws IOException {
+        String limitString = request.getParameter("limit");
+        String afterString = request.getParameter("after");
+        String beforeString = request.getParameter("before");
+        
+        if (afterString != null && beforeString != null) {
+            out.println("Error: use either 'after' or 'before', not both.");
+            return;
+        }
+        
+        boolean backwards = beforeString != null;
+        String cursorString = backwards ? beforeString : afterString;
+        int limit;
+        int cursor;
+        
+        try {
+            limit = parseInt(limitString, DEFAULT_PAGE_SIZE);
+            cursor = parseInt(cursorString, 
+                              backwards ? Integer.MAX_VALUE : 0);
+        } catch (NumberFormatException ex) {
+            out.println("Error: " + ex.getMessage() + " is not an integer.");
+            return;
+        }
+        
+        if (limit < 1) {
+            out.println("Error: limit must be positive.");
+            return;
+        }
+        
+        limit = Math.min(limit, MAX_PAGE_SIZE);
+        
+        // Ask for one extra row in order to know whether there is a next page.
+        List<Person> persons = backwards ?
+                DataAccessObject.instance().getUsersBefore(cursor, limit + 1) :
+                DataAccessObject.instance().getUsersAfter(cursor, limit + 1);
+        
+        Integer nextCursor = null;
+        
+        if (persons.size() > limit) {
+            persons = persons.subList(0, limit);
+            nextCursor = persons.get(limit - 1).getId();
+            response.setHeader("Link", 
+                               "</show?limit=" + limit + 
+                               (backwards ? "&before=" : "&after=") + 
+                               nextCursor + ">; rel=\"next\"");
+        }
+        
+        long serializeStart = System.nanoTime();
+        JsonWriter jsonWriter = new JsonWriter(out);
+        
+        jsonWriter.beginObject();
+        jsonWriter.name("persons");
+        jsonWriter.beginArray();
+        
+        for (Person person : persons) {
+            GSON.toJson(person, Person.class, jsonWriter);
+        }
+        
+        jsonWriter.endArray();
+        jsonWriter.name("nextCursor").value(nextCursor);
+        jsonWriter.endObject();
+        jsonWriter.flush();
+        out.println();
+        
+        Metrics.SHOW_PERSON_SERVLET.serializedNanos(
+                System.nanoTime() - serializeStart);
+        Metrics.SHOW_PERSON_SERVLET.addRows(persons.size());
+    }
+    
+    /**
+     * Returns the {@code Cache-Control} header of the requested resource.
+     * 
+     * @param request the servlet request.
+     * @return the header value.
+     */
+    private static String getCacheControl(HttpServletRequest request) {
+        String path = request.getPathInfo();
+        return path == null || path.equals("/") ? 
+               LIST_CACHE_CONTROL : 
+               PERSON_CACHE_CONTROL;
+    }
+    
+    /**
+     * Parses an integer parameter.
+     * 
+     * @param value        the value of the parameter.
+     * @param defaultValue the value to use if the parameter is empty.
+     * @return the integer value.
+     * @throws NumberFormatException with the offending value as the message.
+     */
+    private static int parseInt(String value, int defaultValue) {
+        if (value == null || value.isEmpty()) {
+            return defaultValue;
+        }
+        
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException ex) {
+            throw new NumberFormatException(value);
         }
     }
 
@@ -93,7 +822,35 @@ public class ShowPersonController extends HttpServlet {
     @Override
     protected void doGet(HttpServletRequest request, HttpServletResponse response)
             throws ServletException, IOException {
-        processRequest(request, response);
+        String etag = ConditionalGet.getETag(getVariant(request));
+        
+        if (ConditionalGet.isNotModified(request, etag)) {
+            long start = System.nanoTime();
+            
+            if (isFullListingRequest(request)) {
+                response.setHeader("Vary", "Accept, Accept-Encoding");
+            }
+            
+            ConditionalGet.sendNotModified(response, 
+                                           etag, 
+                                           getCacheControl(request));
+            Metrics.SHOW_PERSON_SERVLET.finished(start);
+            return;
+        }
+        
+        if (isFullListingRequest(request)) {
+            DatabaseExecutor.instance()
+                            .dispatchStreaming(request, 
+                                               response, 
+                                               handler, 
+                                               Metrics.SHOW_PERSON_SERVLET);
+            return;
+        }
+        
+        DatabaseExecutor.instance().dispatch(request, 
+                                             response, 
+                                             handler, 
+                                             Metrics.SHOW_PERSON_SERVLET);
     }
 
     /**
@@ -107,7 +864,10 @@ public class ShowPersonController extends HttpServlet {
     @Override
     protected void doPost(HttpServletRequest request, HttpServletResponse response)
             throws ServletException, IOException {
-        processRequest(request, response);
+        DatabaseExecutor.instance().dispatch(request, 
+                                             response, 
+                                             handler, 
+                                             Metrics.SHOW_PERSON_SERVLET);
     }
 
     /**
@@ -119,4 +879,126 @@ public class ShowPersonController extends HttpServlet {
     public String getServletInfo() {
         return "Shows the user info via ID/first_name";
     }
+
+    /**
+     * Writes the streamed persons as JSON array elements.
+     */
+    private static final class JsonPersonWriter implements PersonHandler {
+        
+        private final PrintWriter out;
+        private final JsonWriter jsonWriter;
+        private int count;
+        private long serializeNanos;
+        
+        JsonPersonWriter(PrintWriter out) {
+            this.out = out;
+            this.jsonWriter = new JsonWriter(out);
+        }
+        
+        @Override
+        public void handle(Person person) throws IOException {
+            long start = System.nanoTime();
+            GSON.toJson(person, Person.class, jsonWriter);
+            serializeNanos += System.nanoTime() - start;
+            
+            if (++count % CLIENT_CHECK_INTERVAL == 0 && out.checkError()) {
+                throw new IOException("The client has disconnected.");
+            }
+        }
+    }
+    
+    /**
+     * A full listing encoded by one request, to be written by the concurrent 
+     * requests for the same representation.
+     */
+    private static final class SharedListing {
+        
+        final byte[] bytes;
+        final int rows;
+        
+        SharedListing(byte[] bytes, int rows) {
+            this.bytes = bytes;
+            this.rows = rows;
+        }
+    }
+    
+    /**
+     * Keeps the bytes written to it in memory. Once more than 
+     * {@code maxBytes} are written, the bytes are dropped and every write 
+     * fails.
+     */
+    private static final class BoundedOutputStream extends OutputStream {
+        
+        private final int maxBytes;
+        private ByteArrayOutputStream bytes = 
+                new ByteArrayOutputStream(BUFFER_SIZE);
+        private boolean overflowed;
+        
+        BoundedOutputStream(int maxBytes) {
+            this.maxBytes = maxBytes;
+        }
+        
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[]{ (byte) b }, 0, 1);
+        }
+        
+        @Override
+        public void write(byte[] data, int offset, int length) 
+                throws IOException {
+            if (!overflowed && bytes.size() + length > maxBytes) {
+                overflowed = true;
+                bytes = null;
+            }
+            
+            if (overflowed) {
+                throw new IOException("The listing is too large to share.");
+            }
+            
+            bytes.write(data, offset, length);
+        }
+        
+        /**
+         * @return the bytes written.
+         */
+        byte[] toByteArray() {
+            return bytes.toByteArray();
+        }
+    }
+    
+    /**
+     * Writes the bytes through to the target stream, counting them.
+     */
+    private static final class CountingOutputStream extends OutputStream {
+        
+        private final OutputStream target;
+        private long count;
+        
+        CountingOutputStream(OutputStream target) {
+            this.target = target;
+        }
+        
+        @Override
+        public void write(int b) throws IOException {
+            target.write(b);
+            count++;
+        }
+        
+        @Override
+        public void write(byte[] data, int offset, int length) 
+                throws IOException {
+            target.write(data, offset, length);
+            count += length;
+        }
+        
+        @Override
+        public void flush() throws IOException {
+            target.flush();
+        }
+        
+        @Override
+        public void close() throws IOException {
+            target.close();
+        }
+    }
 }
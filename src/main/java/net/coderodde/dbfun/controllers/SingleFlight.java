@@ -0,0 +1,160 @@
+package net.coderodde.dbfun.controllers;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * This class coalesces concurrent identical calls. The first caller of a key
+ * runs the loader; the callers arriving while it runs wait for its result
+ * instead of running the loader again.
+ *
+ * <p>A call only serves the callers of the same generation, typically the
+ * table version, so a caller never gets a result loaded before a write it
+ * has seen. A caller waits for at most {@code maxWaitMillis}, after which it
+ * runs the loader itself. A failure of the loader is passed on to the waiting
+ * callers.
+ *
+ * @param <K> the type of the keys.
+ * @param <V> the type of the results.
+ *
+ * @author Rodion "rodde" Efremov
+ * @version 1.7 (Oct 18, 2026)
+ */
+final class SingleFlight<K, V> {
+
+    private final String name;
+    private final long maxWaitMillis;
+    private final ConcurrentMap<K, Call<V>> calls = new ConcurrentHashMap<>();
+    private final AtomicLong leaderCount = new AtomicLong();
+    private final AtomicLong sharedCount = new AtomicLong();
+    private final AtomicLong timeoutCount = new AtomicLong();
+    private final AtomicLong bypassCount = new AtomicLong();
+
+    /**
+     * Constructs a single flight.
+     *
+     * @param name          the name reported in the metrics.
+     * @param maxWaitMillis the maximum time a caller waits for another one.
+     */
+    SingleFlight(String name, long maxWaitMillis) {
+        this.name = name;
+        this.maxWaitMillis = Math.max(0L, maxWaitMillis);
+    }
+
+    /**
+     * Runs the loader unless an identical call of the same generation is in
+     * flight, in which case waits for its result.
+     *
+     * @param key        the key of the call.
+     * @param generation the generation of the caller.
+     * @param loader     the loader.
+     * @return the result of this or of the concurrent call.
+     * @throws Exception if the loader fails.
+     */
+    V execute(K key, long generation, Callable<V> loader) throws Exception {
+        Call<V> call = new Call<>(generation);
+        Call<V> running = calls.putIfAbsent(key, call);
+
+        if (running == null) {
+            leaderCount.incrementAndGet();
+
+            try {
+                V value = loader.call();
+                call.succeed(value);
+                return value;
+            } catch (Exception | Error ex) {
+                call.fail(ex);
+                throw ex;
+            } finally {
+                calls.remove(key, call);
+            }
+        }
+
+        if (running.generation != generation) {
+            bypassCount.incrementAndGet();
+            return loader.call();
+        }
+
+        if (!running.latch.await(maxWaitMillis, TimeUnit.MILLISECONDS)) {
+            timeoutCount.incrementAndGet();
+            return loader.call();
+        }
+
+        if (running.failure != null) {
+            if (running.failure instanceof Exception) {
+                throw (Exception) running.failure;
+            }
+
+            throw (Error) running.failure;
+        }
+
+        sharedCount.incrementAndGet();
+        return running.value;
+    }
+
+    /**
+     * @return the name of this single flight.
+     */
+    String getName() {
+        return name;
+    }
+
+    /**
+     * @return the number of calls that ran the loader.
+     */
+    long getLeaderCount() {
+        return leaderCount.get();
+    }
+
+    /**
+     * @return the number of calls that got the result of another call, that
+     *         is, the number of loads saved.
+     */
+    long getSharedCount() {
+        return sharedCount.get();
+    }
+
+    /**
+     * @return the number of calls that gave up waiting and ran the loader.
+     */
+    long getTimeoutCount() {
+        return timeoutCount.get();
+    }
+
+    /**
+     * @return the number of calls that ran the loader because the call in
+     *         flight was of another generation.
+     */
+    long getBypassCount() {
+        return bypassCount.get();
+    }
+
+    /**
+     * A call in flight.
+     */
+    private static final class Call<V> {
+
+        final long generation;
+        final CountDownLatch latch = new CountDownLatch(1);
+        V value;
+        Throwable failure;
+
+        Call(long generation) {
+            this.generation = generation;
+        }
+
+        void succeed(V value) {
+            this.value = value;
+            latch.countDown();
+        }
+
+        void fail(Throwable failure) {
+            this.failure = failure;
+            latch.countDown();
+        }
+    }
+}
@@ -0,0 +1,148 @@
+package net.coderodde.dbfun.controllers;
+
+import com.google.gson.stream.JsonWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.Map;
+import javax.servlet.ServletException;
+import javax.servlet.annotation.WebServlet;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * This controller shows the statistics of the persons as JSON: the total
+ * number of persons, the numbers per email domain for the {@code N} largest
+ * domains with {@code /stats?domains=N}, and the numbers created per day. The
+ * statistics are answered from {@link PersonStatistics} without touching the
+ * database; until they are loaded, the response is
+ * {@code 503 Service Unavailable}.
+ *
+ * @author Rodion "rodde" Efremov
+ * @version 1.7 (Oct 18, 2026)
+ */
+@WebServlet(name = "StatsController", urlPatterns = {"/stats"})
+public class StatsController extends HttpServlet {
+
+    /**
+     * The number of domains listed when no number is given.
+     */
+    private static final int DEFAULT_DOMAINS = 100;
+
+    /**
+     * The largest number of domains a client may ask for.
+     */
+    private static final int MAX_DOMAINS = 10000;
+
+    /**
+     * Handles the HTTP <code>GET</code> method.
+     *
+     * @param request  the servlet request.
+     * @param response the servlet response.
+     * @throws ServletException if a servlet-specific error occurs.
+     * @throws IOException if an I/O error occurs.
+     */
+    @Override
+    protected void doGet(HttpServletRequest request, HttpServletResponse response)
+            throws ServletException, IOException {
+        long start = System.nanoTime();
+
+        try {
+            showStats(request, response);
+        } catch (IOException | RuntimeException ex) {
+            Metrics.STATS_SERVLET.failed();
+            throw ex;
+        } finally {
+            Metrics.STATS_SERVLET.finished(start);
+        }
+    }
+
+    private static void showStats(HttpServletRequest request,
+                                  HttpServletResponse response)
+            throws IOException {
+        PersonStatistics statistics = PersonStatistics.getIfReady();
+
+        if (statistics == null) {
+            response.setStatus(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+            response.setContentType("text/plain;charset=UTF-8");
+
+            if (PersonStatistics.ENABLED) {
+                response.setHeader("Retry-After", "5");
+            }
+
+            try (PrintWriter out = response.getWriter()) {
+                out.println(PersonStatistics.ENABLED ?
+                            "Error: the statistics are still loading." :
+                            "Error: the statistics are disabled.");
+            }
+
+            return;
+        }
+
+        String domainsString = request.getParameter("domains");
+        int domains;
+
+        try {
+            domains = domainsString == null || domainsString.isEmpty() ?
+                      DEFAULT_DOMAINS :
+                      Integer.parseInt(domainsString);
+        } catch (NumberFormatException ex) {
+            domains = -1;
+        }
+
+        if (domains < 0) {
+            response.setStatus(HttpServletResponse.SC_BAD_REQUEST);
+            response.setContentType("text/plain;charset=UTF-8");
+
+            try (PrintWriter out = response.getWriter()) {
+                out.println("Error: use /stats?domains=N with a " +
+                            "non-negative N.");
+            }
+
+            return;
+        }
+
+        Map<String, Long> countsByDomain =
+                statistics.getCountsByDomain(Math.min(domains, MAX_DOMAINS));
+        response.setContentType("application/json;charset=UTF-8");
+        response.setHeader("Cache-Control", "no-cache");
+
+        try (PrintWriter out = response.getWriter()) {
+            JsonWriter jsonWriter = new JsonWriter(out);
+            jsonWriter.beginObject();
+            jsonWriter.name("total").value(statistics.getTotal());
+            jsonWriter.name("domainCount").value(statistics.getDomainCount());
+            jsonWriter.name("reconciled")
+                      .value(statistics.getLastReconciledMillis());
+            jsonWriter.name("byDomain");
+            writeCounts(jsonWriter, countsByDomain);
+            jsonWriter.name("byDay");
+            writeCounts(jsonWriter, statistics.getCountsByDay());
+            jsonWriter.endObject();
+            jsonWriter.flush();
+            out.println();
+        }
+    }
+
+    private static void writeCounts(JsonWriter jsonWriter,
+                                    Map<String, Long> counts)
+            throws IOException {
+        jsonWriter.beginObject();
+
+        for (Map.Entry<String, Long> entry : counts.entrySet()) {
+            jsonWriter.name(entry.getKey()).value(entry.getValue());
+        }
+
+        jsonWriter.endObject();
+    }
+
+    /**
+     * Returns a short description of the servlet.
+     *
+     * @return a String containing servlet description
+     */
+    @Override
+    public String getServletInfo() {
+        return "Shows the statistics of the persons.";
+    }
+}